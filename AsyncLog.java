@@ -0,0 +1,274 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// ===============================================
+//        ASYNC LOGGER (ring buffer + one writer)
+// ===============================================
+// Server threads log while holding the ChatServer class lock or the game
+// monitor, so a log call must never touch the console or disk itself.
+//
+//   Producers  check the level first (disabled = one compare, nothing
+//              formatted), claim a slot in a pre-allocated ring with one
+//              CAS, copy the format string + up to three arguments in, and
+//              publish the slot. No locks, no formatting, no I/O.
+//   Consumer   one daemon thread drains published slots in order, fills in
+//              the "{}" placeholders, and writes whole batches to a rolling
+//              file (and the console), flushing when it catches up.
+//   Full ring  the record is dropped and counted; the writer reports the
+//              number dropped so gaps are visible in the log itself.
+//
+// Arguments are rendered on the writer thread, so pass immutable values
+// (strings, numbers), not objects that are about to change.
+//
+// Settings: -Dlog.level=DEBUG|INFO|WARN|ERROR (INFO), -Dlog.buffer=8192 slots,
+// -Dlog.dir=logs, -Dlog.maxBytes=10485760 per file, -Dlog.files=5 kept,
+// -Dlog.console=true
+final class AsyncLog {
+
+    enum Level { DEBUG, INFO, WARN, ERROR }
+
+    private static final Level LEVEL = Level.valueOf(System.getProperty("log.level", "INFO").toUpperCase());
+    private static final int CAPACITY = Integer.highestOneBit(Math.max(64, Integer.getInteger("log.buffer", 8192)));
+    private static final int MASK = CAPACITY - 1;
+    private static final boolean CONSOLE = Boolean.parseBoolean(System.getProperty("log.console", "true"));
+
+    private static final Slot[] ring = new Slot[CAPACITY];
+    private static final AtomicLong claimed = new AtomicLong();   // next sequence a producer will take
+    private static volatile long consumed = 0;                    // next sequence the writer will read
+    private static final LongAdder dropped = new LongAdder();
+
+    private static final Writer writer = new Writer();
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) ring[i] = new Slot();
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(AsyncLog::shutdown, "log-shutdown"));
+    }
+
+    private AsyncLog() {}
+
+    // One pre-allocated record; `published` is written last (volatile) so the
+    // writer sees every other field once it sees the sequence number
+    private static final class Slot {
+        volatile long published = -1;
+        Level level;
+        long time;
+        String thread;
+        String format;
+        Object a0, a1, a2;
+    }
+
+    // -------------------- PRODUCER API --------------------
+
+    static boolean isEnabled(Level level) {
+        return level.compareTo(LEVEL) >= 0;
+    }
+
+    // Fixed arities instead of varargs: a disabled call must not even allocate an array
+    static void debug(String format, Object a) { log(Level.DEBUG, format, a, null, null); }
+    static void debug(String format, Object a, Object b) { log(Level.DEBUG, format, a, b, null); }
+    static void info(String format) { log(Level.INFO, format, null, null, null); }
+    static void info(String format, Object a) { log(Level.INFO, format, a, null, null); }
+    static void info(String format, Object a, Object b) { log(Level.INFO, format, a, b, null); }
+    static void info(String format, Object a, Object b, Object c) { log(Level.INFO, format, a, b, c); }
+    static void warn(String format, Object a) { log(Level.WARN, format, a, null, null); }
+    static void warn(String format, Object a, Object b) { log(Level.WARN, format, a, b, null); }
+    static void warn(String format, Object a, Object b, Object c) { log(Level.WARN, format, a, b, c); }
+    static void error(String format, Object a) { log(Level.ERROR, format, a, null, null); }
+    static void error(String format, Object a, Object b) { log(Level.ERROR, format, a, b, null); }
+
+    private static void log(Level level, String format, Object a0, Object a1, Object a2) {
+        if (!isEnabled(level)) return;
+
+        long seq;
+        do {
+            seq = claimed.get();
+            if (seq - consumed >= CAPACITY) {
+                dropped.increment();   // ring full: drop rather than block a server thread
+                return;
+            }
+        } while (!claimed.compareAndSet(seq, seq + 1));
+
+        Slot s = ring[(int) seq & MASK];
+        s.level = level;
+        s.time = System.currentTimeMillis();
+        s.thread = Thread.currentThread().getName();
+        s.format = format;
+        s.a0 = a0;
+        s.a1 = a1;
+        s.a2 = a2;
+        s.published = seq;
+    }
+
+    static long droppedCount() {
+        return dropped.sum();
+    }
+
+    // Drain everything already published (used at shutdown)
+    static void flush() {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (consumed < target && System.nanoTime() < deadline) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(1_000_000);
+        }
+    }
+
+    private static void shutdown() {
+        flush();
+        writer.closeFile();
+    }
+
+    // -------------------- CONSUMER --------------------
+
+    private static final class Writer extends Thread {
+        private final File dir = new File(System.getProperty("log.dir", "logs"));
+        private final long maxBytes = Long.getLong("log.maxBytes", 10L * 1024 * 1024);
+        private final int keepFiles = Math.max(1, Integer.getInteger("log.files", 5));
+
+        private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        private final Date date = new Date();
+        private final StringBuilder line = new StringBuilder(256);
+
+        private OutputStream file;
+        private long fileBytes;
+        private long reportedDrops;
+        private final Object fileLock = new Object();
+
+        Writer() {
+            super("async-log");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            boolean dirty = false;
+            while (true) {
+                if (drainBatch() > 0) {
+                    idle = 0;
+                    dirty = true;
+                    continue;
+                }
+                if (dirty) {             // caught up: one flush per batch
+                    flushOutputs();
+                    dirty = false;
+                }
+                // Nothing published: spin briefly, then back off to 1 ms naps
+                if (++idle < 100) Thread.onSpinWait();
+                else LockSupport.parkNanos(1_000_000);
+            }
+        }
+
+        // Write up to one ring's worth of consecutive published records
+        private int drainBatch() {
+            int n = 0;
+            long next = consumed;
+            while (n < CAPACITY) {
+                Slot s = ring[(int) next & MASK];
+                if (s.published != next) break;
+
+                format(s);
+                s.format = null;
+                s.a0 = s.a1 = s.a2 = null;   // don't pin arguments until the slot is reused
+                next++;
+                consumed = next;             // frees the slot for producers
+                write(line);
+                n++;
+            }
+
+            long drops = dropped.sum();
+            if (drops != reportedDrops) {
+                line.setLength(0);
+                line.append("[LOG] ").append(drops - reportedDrops).append(" log records dropped (buffer full)");
+                write(line);
+                reportedDrops = drops;
+            }
+            return n;
+        }
+
+        // "2026-01-01 12:00:00.000 INFO  [thread] message with {} filled in"
+        private void format(Slot s) {
+            line.setLength(0);
+            date.setTime(s.time);
+            line.append(timeFormat.format(date)).append(' ');
+            String lvl = s.level.name();
+            line.append(lvl);
+            for (int i = lvl.length(); i < 6; i++) line.append(' ');
+            line.append('[').append(s.thread).append("] ");
+
+            String f = s.format;
+            int arg = 0;
+            int from = 0;
+            int at;
+            while ((at = f.indexOf("{}", from)) >= 0 && arg < 3) {
+                line.append(f, from, at);
+                Object v = arg == 0 ? s.a0 : arg == 1 ? s.a1 : s.a2;
+                line.append(v);
+                arg++;
+                from = at + 2;
+            }
+            line.append(f, from, f.length());
+        }
+
+        private void write(CharSequence text) {
+            String out = text.toString();
+            if (CONSOLE) System.out.println(out);
+
+            byte[] bytes = (out + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+            synchronized (fileLock) {
+                try {
+                    if (file == null || fileBytes + bytes.length > maxBytes) roll();
+                    file.write(bytes);
+                    fileBytes += bytes.length;
+                } catch (IOException e) {
+                    // disk trouble must not kill the logger; console still works
+                }
+            }
+        }
+
+        private void flushOutputs() {
+            synchronized (fileLock) {
+                try {
+                    if (file != null) file.flush();
+                } catch (IOException ignored) {}
+            }
+            if (CONSOLE) System.out.flush();
+        }
+
+        // server.log → server.log.1 → ... → server.log.<keep-1>, oldest deleted
+        private void roll() throws IOException {
+            if (file != null) file.close();
+            if (!dir.exists()) dir.mkdirs();
+
+            File current = new File(dir, "server.log");
+            if (current.exists() && current.length() > 0 && (file != null || current.length() >= maxBytes)) {
+                new File(dir, "server.log." + (keepFiles - 1)).delete();
+                for (int i = keepFiles - 2; i >= 1; i--) {
+                    File f = new File(dir, "server.log." + i);
+                    if (f.exists()) f.renameTo(new File(dir, "server.log." + (i + 1)));
+                }
+                if (keepFiles > 1) current.renameTo(new File(dir, "server.log.1"));
+                else current.delete();
+            }
+
+            boolean append = current.exists();
+            file = new BufferedOutputStream(new FileOutputStream(current, append), 64 * 1024);
+            fileBytes = append ? current.length() : 0;
+        }
+
+        void closeFile() {
+            synchronized (fileLock) {
+                try {
+                    if (file != null) file.close();
+                } catch (IOException ignored) {}
+                file = null;
+            }
+        }
+    }
+}
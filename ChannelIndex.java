@@ -0,0 +1,195 @@
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+// ===============================================
+//        CHAT CHANNELS (pub/sub subscription index)
+// ===============================================
+// Protocol (client → server):
+//   /join #chan          subscribe (channel is created on first join)
+//   /leave #chan         unsubscribe (channel is dropped when it empties)
+//   /say #chan <text>    publish to subscribers only
+// Subscribers receive "[#chan] alice: text".
+//
+// Two indexes, kept in step under this object's lock (announcements are
+// published after it is released):
+//   channel → copy-on-write ClientHandler[]   (read lock-free by publish)
+//   session ID → channel names                (for leave-on-disconnect)
+//
+// Publishing reads one array and writes one pre-encoded byte[] to each
+// subscriber, so a message costs O(subscribers) and a single encode, no
+// matter how many users are connected.
+//
+// Settings: -Dchannels.perUser=16 (max channels one session can join)
+final class ChannelIndex {
+
+    private static final int MAX_PER_USER = Integer.getInteger("channels.perUser", 16);
+    private static final ClientHandler[] NO_MEMBERS = new ClientHandler[0];
+    private static final String[] NO_CHANNELS = new String[0];
+
+    private static final class Channel {
+        volatile ClientHandler[] members = NO_MEMBERS;
+    }
+
+    private final ConcurrentHashMap<String, Channel> channels = new ConcurrentHashMap<>();
+    private String[][] bySession = new String[64][];   // guarded by this
+
+    // "#Lobby" → "#lobby"; null if not a valid channel name
+    static String normalize(String name) {
+        if (name == null || name.length() < 2 || name.length() > 32 || name.charAt(0) != '#') return null;
+        for (int i = 1; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (!Character.isLetterOrDigit(ch) && ch != '-' && ch != '_') return null;
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    // -------------------- SUBSCRIBE / UNSUBSCRIBE --------------------
+
+    public void join(int sessionId, ClientHandler handler, String channel) {
+        int here;
+        synchronized (this) {
+            String[] mine = channelsOf(sessionId);
+            if (indexOf(mine, channel) >= 0) {
+                handler.send("[ERROR] You are already in " + channel + ".");
+                return;
+            }
+            if (mine.length >= MAX_PER_USER) {
+                handler.send("[ERROR] You can be in at most " + MAX_PER_USER + " channels.");
+                return;
+            }
+
+            Channel ch = channels.computeIfAbsent(channel, k -> new Channel());
+            ClientHandler[] m = ch.members;
+            ClientHandler[] grown = Arrays.copyOf(m, m.length + 1);
+            grown[m.length] = handler;
+            ch.members = grown;
+            here = grown.length;
+
+            String[] joined = Arrays.copyOf(mine, mine.length + 1);
+            joined[mine.length] = channel;
+            setChannels(sessionId, joined);
+        }
+        publish(channel, handler.getUsername() + " joined (" + here + " here).");
+    }
+
+    public void leave(int sessionId, ClientHandler handler, String channel) {
+        boolean announce;
+        synchronized (this) {
+            String[] mine = channelsOf(sessionId);
+            int at = indexOf(mine, channel);
+            if (at < 0) {
+                handler.send("[ERROR] You are not in " + channel + ".");
+                return;
+            }
+            setChannels(sessionId, without(mine, at));
+            announce = unsubscribe(handler, channel);
+        }
+        if (announce) publish(channel, handler.getUsername() + " left.");
+        handler.send("[SERVER] Left " + channel + ".");
+    }
+
+    // Disconnect: drop every subscription the session still has
+    public void leaveAll(int sessionId, ClientHandler handler) {
+        String[] mine;
+        synchronized (this) {
+            mine = channelsOf(sessionId).clone();
+            for (int i = 0; i < mine.length; i++) {
+                if (!unsubscribe(handler, mine[i])) mine[i] = null;   // nobody left to tell
+            }
+            setChannels(sessionId, null);
+        }
+        for (String channel : mine) {
+            if (channel != null) publish(channel, handler.getUsername() + " left.");
+        }
+    }
+
+    // Caller holds the lock; true if the channel still has members to notify
+    private boolean unsubscribe(ClientHandler handler, String channel) {
+        Channel ch = channels.get(channel);
+        if (ch == null) return false;
+
+        ClientHandler[] m = ch.members;
+        int at = -1;
+        for (int i = 0; i < m.length; i++) {
+            if (m[i] == handler) at = i;
+        }
+        if (at < 0) return false;
+
+        if (m.length == 1) {
+            ch.members = NO_MEMBERS;
+            channels.remove(channel);
+            return false;
+        }
+        ClientHandler[] shrunk = new ClientHandler[m.length - 1];
+        System.arraycopy(m, 0, shrunk, 0, at);
+        System.arraycopy(m, at + 1, shrunk, at, m.length - at - 1);
+        ch.members = shrunk;
+        return true;
+    }
+
+    // -------------------- PUBLISH (lock-free) --------------------
+
+    // "/say": only subscribers may speak in a channel
+    public void say(ClientHandler sender, String channel, String text) {
+        Channel ch = channels.get(channel);
+        if (ch == null || !contains(ch.members, sender)) {
+            sender.send("[ERROR] Join " + channel + " first (/join " + channel + ").");
+            return;
+        }
+        publish(channel, sender.getUsername() + ": " + text);
+    }
+
+    // "[#chan] text", encoded once for all subscribers
+    private void publish(String channel, String text) {
+        Channel ch = channels.get(channel);
+        if (ch == null) return;
+        ClientHandler[] m = ch.members;
+        if (m.length == 0) return;
+
+        byte[] line = ("[" + channel + "] " + text + "\n").getBytes();   // same default charset as ClientHandler.send
+        for (ClientHandler h : m) {
+            h.sendEncoded(line);
+        }
+    }
+
+    public int channelCount() {
+        return channels.size();
+    }
+
+    // -------------------- SESSION → CHANNELS --------------------
+
+    private String[] channelsOf(int sessionId) {
+        String[] mine = sessionId < bySession.length ? bySession[sessionId] : null;
+        return mine != null ? mine : NO_CHANNELS;
+    }
+
+    private void setChannels(int sessionId, String[] names) {
+        if (sessionId >= bySession.length) {
+            if (names == null) return;
+            bySession = Arrays.copyOf(bySession, Math.max(sessionId + 1, bySession.length * 2));
+        }
+        bySession[sessionId] = names != null && names.length > 0 ? names : null;
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    private static String[] without(String[] names, int at) {
+        String[] out = new String[names.length - 1];
+        System.arraycopy(names, 0, out, 0, at);
+        System.arraycopy(names, at + 1, out, at, names.length - at - 1);
+        return out;
+    }
+
+    private static boolean contains(ClientHandler[] members, ClientHandler h) {
+        for (ClientHandler m : members) {
+            if (m == h) return true;
+        }
+        return false;
+    }
+}
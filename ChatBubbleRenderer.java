@@ -0,0 +1,129 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineBreakMeasurer;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
+import java.text.AttributedString;
+import java.util.ArrayList;
+import java.util.List;
+
+// Single shared cell renderer for the chat transcript. Paints one bubble
+// per call (no per-message components) and caches the wrapped TextLayouts
+// on each ChatMessage, so a message is only laid out again if the list
+// width changes.
+public class ChatBubbleRenderer extends JComponent implements ListCellRenderer<ChatMessage> {
+
+    private static final int GAP = 10;          // space above each bubble
+    private static final int PAD_X = 15;
+    private static final int PAD_Y = 10;
+    private static final int ARC = 24;
+
+    private static final Color SENDER_COLOR = new Color(200, 210, 255);
+    private static final Color TEXT_COLOR = new Color(235, 240, 255);
+    private static final Color TIME_COLOR = new Color(170, 175, 220);
+
+    private final Font labelFont = UIManager.getFont("Label.font");
+    private final Font textFont = UIManager.getFont("TextArea.font");
+
+    private final Dimension preferred = new Dimension();
+    private ChatMessage msg;
+
+    public ChatBubbleRenderer() {
+        setOpaque(false);
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<? extends ChatMessage> list, ChatMessage value,
+                                                  int index, boolean isSelected, boolean cellHasFocus) {
+        msg = value;
+        int width = list.getWidth() > 0 ? list.getWidth() : 260;
+        ensureLayout(value, width);
+        preferred.setSize(width, value.height);
+        return this;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return preferred;
+    }
+
+    private void ensureLayout(ChatMessage m, int listWidth) {
+        if (m.layoutWidth == listWidth) return;
+
+        FontMetrics lfm = getFontMetrics(labelFont);
+        FontRenderContext frc = getFontMetrics(textFont).getFontRenderContext();
+        int wrapWidth = Math.max(40, (int) (listWidth * 0.8) - 2 * PAD_X);
+
+        List<TextLayout> lines = new ArrayList<>();
+        float textWidth = 0;
+        float textHeight = 0;
+        for (String para : m.text.split("\n")) {
+            if (para.isEmpty()) {
+                textHeight += getFontMetrics(textFont).getHeight();
+                continue;
+            }
+            AttributedString as = new AttributedString(para);
+            as.addAttribute(TextAttribute.FONT, textFont);
+            LineBreakMeasurer lbm = new LineBreakMeasurer(as.getIterator(), frc);
+            while (lbm.getPosition() < para.length()) {
+                TextLayout tl = lbm.nextLayout(wrapWidth);
+                lines.add(tl);
+                textWidth = Math.max(textWidth, tl.getVisibleAdvance());
+                textHeight += tl.getAscent() + tl.getDescent() + tl.getLeading();
+            }
+        }
+
+        int headerWidth = Math.max(lfm.stringWidth(m.sender), lfm.stringWidth(m.time));
+
+        m.lines = lines.toArray(new TextLayout[0]);
+        m.bubbleWidth = (int) Math.ceil(Math.max(textWidth, headerWidth)) + 2 * PAD_X;
+        m.height = GAP + PAD_Y + lfm.getHeight() + (int) Math.ceil(textHeight) + lfm.getHeight() + PAD_Y;
+        m.layoutWidth = listWidth;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (msg == null || msg.lines == null) return;
+
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        int bw = Math.min(msg.bubbleWidth, getWidth());
+        int bh = msg.height - GAP;
+        int x = msg.rightAlign ? getWidth() - bw : 0;
+        int y = GAP;
+
+        // Soft shadow + bubble
+        Color c = msg.color;
+        g2.setColor(new Color(c.getRed(), c.getGreen(), c.getBlue(), 70));
+        g2.fillRoundRect(x + 4, y + 4, bw - 8, bh - 8, ARC + 2, ARC + 2);
+        g2.setColor(c);
+        g2.fillRoundRect(x, y, bw, bh, ARC, ARC);
+
+        // Sender
+        FontMetrics lfm = g2.getFontMetrics(labelFont);
+        int ty = y + PAD_Y;
+        g2.setFont(labelFont);
+        g2.setColor(SENDER_COLOR);
+        g2.drawString(msg.sender, x + PAD_X, ty + lfm.getAscent());
+        ty += lfm.getHeight();
+
+        // Message body (pre-wrapped)
+        g2.setColor(TEXT_COLOR);
+        float fy = ty;
+        for (TextLayout tl : msg.lines) {
+            fy += tl.getAscent();
+            tl.draw(g2, x + PAD_X, fy);
+            fy += tl.getDescent() + tl.getLeading();
+        }
+
+        // Timestamp
+        g2.setFont(labelFont);
+        g2.setColor(TIME_COLOR);
+        g2.drawString(msg.time, x + PAD_X, y + bh - PAD_Y - lfm.getDescent());
+
+        g2.dispose();
+    }
+}
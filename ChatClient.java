@@ -1,28 +1,38 @@
 import javax.swing.*;
 import java.awt.*;
 import java.io.*;
-import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ChatClient extends JFrame {
 
-    private static Socket socket;
-    private static BufferedReader serverIn;
-    private static PrintWriter serverOut;
+    // All protocol I/O; this class only adapts its callbacks to Swing
+    private ChatConnection connection;
 
-    private JPanel chatPanel;
+    private JList<ChatMessage> chatList;
+    private ChatTranscriptModel transcript;
     private JScrollPane scrollPane;
     private JTextField inputField;
     private JLabel typingLabel;
-    private Timer typingDisplayTimer;
+    private FrameScheduler.Task typingTimeout;
 
     private String username;
-    private boolean typingSent = false;
+    private long typingSentAt = 0;                  // last /typing refresh (System.currentTimeMillis)
+    private static final long TYPING_REFRESH_MS = 2000;   // keep well under the server's TTL
 
     private String lastMessageSent = "";   // prevents duplicates
     private DefaultListModel<String> userListModel;
     private JList<String> userList;
+    private long presenceVersion = -1;    // -1 until the first snapshot arrives
+
+    // Network thread decodes into events; the EDT drains them once per frame
+    private final ConcurrentLinkedQueue<ClientEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
 
     private TicTacToePanel gamePanel;
+    private final MovePredictor predictor = new MovePredictor();
 
     private JSplitPane splitPane;
     private JButton toggleChatButton;
@@ -30,6 +40,11 @@ public class ChatClient extends JFrame {
     private int lastDividerLocation = 850;
 
     public static void main(String[] args) {
+        // Decode all sound effects while the login window is up
+        Thread soundLoader = new Thread(SoundManager::preload, "sound-preload");
+        soundLoader.setDaemon(true);
+        soundLoader.start();
+
         SwingUtilities.invokeLater(() -> {
             new LoginWindow((ip, username) -> {
                 ChatClient client = new ChatClient();
@@ -48,42 +63,71 @@ public class ChatClient extends JFrame {
         // -------------------- GAME PANEL --------------------
         gamePanel = new TicTacToePanel(
                 (row, col) -> {
-                    if (serverOut != null) {
-                        serverOut.println("/move " + (row + 1) + " " + (col + 1));
-                        serverOut.flush();
+                    if (connection == null) return;
+
+                    // Show our move immediately if the local rules allow it;
+                    // the server confirms or rejects it by sequence number
+                    long seq = predictor.predict(row, col);
+                    if (seq >= 0) {
+                        gamePanel.showTentative(row, col, predictor.getSymbol());
+                        connection.sendMove(row, col, seq);
+                    } else {
+                        connection.sendMove(row, col);
                     }
                 },
                 () -> {
-                    if (serverOut != null) {
-                        serverOut.println("/ttt retry");
-                        serverOut.flush();
-                    }
+                    if (connection != null) connection.sendRetry();
                 }
         );
 
-        // -------------------- CHAT PANEL --------------------
-        chatPanel = new JPanel() {
+        // -------------------- CHAT TRANSCRIPT --------------------
+        // Bounded ring-buffer model + one shared bubble renderer; only the
+        // visible rows are ever painted, older messages spill to disk.
+        transcript = new ChatTranscriptModel(
+                Integer.getInteger("chat.history", 500),
+                new File("chat-history-" + username + ".log"));
+
+        StarfieldBackground chatBackground = new StarfieldBackground(
+                new Color(6, 6, 18), new Color(20, 16, 48), new Color(230, 235, 255, 140), 160);
+
+        chatList = new JList<>(transcript) {
             @Override
             protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                Graphics2D g2 = (Graphics2D) g;
-
-                Color top = new Color(6, 6, 18);
-                Color bottom = new Color(20, 16, 48);
-                g2.setPaint(new GradientPaint(0, 0, top, 0, getHeight(), bottom));
-                g2.fillRect(0, 0, getWidth(), getHeight());
-
-                g2.setColor(new Color(230, 235, 255, 140));
-                for (int i = 0; i < 80; i++) {
-                    int x = (int) (Math.random() * getWidth());
-                    int y = (int) (Math.random() * getHeight());
-                    g2.fillOval(x, y, 2, 2);
-                }
+                chatBackground.paint(g, this);   // cached, only the clipped strip
+                getUI().paint(g, this);          // rows only; background already painted
+            }
+
+            @Override
+            public boolean getScrollableTracksViewportWidth() {
+                return true;   // wrap bubbles to the viewport instead of scrolling sideways
             }
         };
-        chatPanel.setLayout(new BoxLayout(chatPanel, BoxLayout.Y_AXIS));
-        scrollPane = new JScrollPane(chatPanel);
+        chatList.setCellRenderer(new ChatBubbleRenderer());
+        chatList.setFocusable(false);
+        chatList.setSelectionModel(new DefaultListSelectionModel() {
+            @Override
+            public void setSelectionInterval(int a, int b) { /* transcript is read-only */ }
+        });
+
+        // Row heights depend on width: re-measure when the width changes
+        chatList.addComponentListener(new java.awt.event.ComponentAdapter() {
+            private int lastWidth = -1;
+
+            @Override
+            public void componentResized(java.awt.event.ComponentEvent e) {
+                if (chatList.getWidth() != lastWidth) {
+                    lastWidth = chatList.getWidth();
+                    chatList.setFixedCellHeight(10);
+                    chatList.setFixedCellHeight(-1);
+                }
+            }
+        });
+
+        scrollPane = new JScrollPane(chatList);
         scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
+        // The list stays opaque and paints its own background, which scrolls
+        // with it: that is what lets the viewport's default blit mode copy
+        // pixels on scroll and repaint only the new strip
 
         // -------------------- USER LIST --------------------
         userListModel = new DefaultListModel<>();
@@ -113,10 +157,10 @@ public class ChatClient extends JFrame {
         inputField.addKeyListener(new java.awt.event.KeyAdapter() {
             @Override
             public void keyTyped(java.awt.event.KeyEvent evt) {
-                if (!typingSent && serverOut != null) {
-                    serverOut.println("/typing " + username);
-                    serverOut.flush();
-                    typingSent = true;
+                long now = System.currentTimeMillis();
+                if (now - typingSentAt >= TYPING_REFRESH_MS && connection != null) {
+                    connection.sendTyping();
+                    typingSentAt = now;
                 }
             }
         });
@@ -170,7 +214,7 @@ public class ChatClient extends JFrame {
 
         setLocationRelativeTo(null);
         setVisible(true);
-        new Thread(this::listenForMessages).start();
+        connection.start();
     }
 
     private void styleButton(JButton b) {
@@ -197,14 +241,9 @@ public class ChatClient extends JFrame {
 
     private void connectToServer(String ip) {
         try {
-            socket = new Socket(ip, 5555);
-
-            serverIn = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            serverOut = new PrintWriter(socket.getOutputStream(), true);
-
-            appendBubble("[SERVER] " + serverIn.readLine());
-            serverOut.println(username);
-            serverOut.flush();
+            connection = ChatConnection.open(ip, ChatConnection.DEFAULT_PORT, username);
+            connection.setListener(new SwingBridge());
+            appendBubble("[SERVER] " + connection.getGreeting());
 
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Connection failed: " + e.getMessage());
@@ -214,74 +253,192 @@ public class ChatClient extends JFrame {
 
     private void sendMessage() {
         String text = inputField.getText().trim();
-        if (text.isEmpty() || serverOut == null) return;
+        if (text.isEmpty() || connection == null) return;
 
         lastMessageSent = username + ": " + text;
 
-        serverOut.println(text);
-        serverOut.flush();
+        connection.sendChat(text);
 
         inputField.setText("");
-        typingSent = false;
+        typingSentAt = 0;
     }
 
-    private void listenForMessages() {
-        try {
-            InputStream rawIn = socket.getInputStream();
-            String line;
+    // Runs on the connection's reader thread: turns callbacks into queued
+    // events, never touches Swing
+    private final class SwingBridge implements ChatListener {
+        @Override public void onBoard(char[] cells) { post(ClientEvent.board(cells)); }
+        @Override public void onCell(int row, int col, char symbol) { post(ClientEvent.cell(row, col, symbol)); }
+        @Override public void onRole(char symbol) { post(ClientEvent.role(symbol)); }
+        @Override public void onMoveAck(long seq) { post(ClientEvent.moveAck(seq)); }
+        @Override public void onMoveReject(long seq) { post(ClientEvent.moveReject(seq)); }
+        @Override public void onGameOver(String result) { post(ClientEvent.gameOver(result)); }
+        @Override public void onRetryStatus(int count) { post(ClientEvent.retryStatus(count)); }
+        @Override public void onClock(long xMillis, long oMillis, char running) { post(ClientEvent.clock(xMillis, oMillis, running)); }
+        @Override public void onClockOff() { post(ClientEvent.clockOff()); }
+        @Override public void onAnalysis(int marks, char outcome, int plies, int[] best) { post(ClientEvent.analysis(marks, outcome, plies, best)); }
+
+        @Override
+        public void onReplay(long gameId, String playerX, String playerO, char result, boolean timeout,
+                             int[] cells, int[] delayMillis) {
+            post(ClientEvent.replay(gameId, playerX, playerO, result, timeout, cells, delayMillis));
+        }
+        @Override public void onTyping(String[] names) { post(ClientEvent.typing(names)); }
+        @Override public void onPresenceSnapshot(long version, String[] names) { post(ClientEvent.presenceSnapshot(version, names)); }
+        @Override public void onPresenceDelta(long version, String[] joined, String[] left) { post(ClientEvent.presenceDelta(version, joined, left)); }
+        @Override public void onMessage(String line) { appendBubble(line); }
+        @Override public void onError(String message) { appendBubble(message); }
+
+        @Override
+        public void onFileReceived(String sender, String name, File savedTo) {
+            appendBubble("[FILE RECEIVED] from " + sender + ": " + name);
+            appendBubble("[SAVED] → downloads/" + name);
+        }
 
-            while ((line = serverIn.readLine()) != null) {
+        @Override
+        public void onDisconnected() {
+            appendBubble("[ERROR] Connection closed.");
+        }
+    }
 
-                if (line.startsWith("[GAMEBOARD]")) {
-                    updateGameBoard(line);
-                    continue;
-                }
+    // Queue an event; the first event after a drain asks the frame clock for one drain
+    private void post(ClientEvent event) {
+        pendingEvents.add(event);
+        if (drainScheduled.compareAndSet(false, true)) {
+            FrameScheduler.get().runNextFrame(this::drainEvents);
+        }
+    }
 
-                if (line.startsWith("[GAME_OVER]")) {
-                    gamePanel.showGameOver(line.replace("[GAME_OVER]", "").trim());
-                    continue;
+    // EDT: apply everything queued since the last frame as one batch,
+    // with a single transcript update / layout pass / scroll at the end
+    private void drainEvents() {
+        drainScheduled.set(false);
+
+        List<ChatMessage> newMessages = null;
+        ClientEvent e;
+        while ((e = pendingEvents.poll()) != null) {
+            switch (e.type) {
+                case BOARD: {
+                    char[] cells = ((ClientEvent.Board) e).cells;
+                    for (int i = 0; i < 9; i++) applyCell(i / 3, i % 3, cells[i]);
+                    break;
                 }
-
-                if (line.startsWith("[RETRY_STATUS]")) {
-                    gamePanel.updateRetryStatus(Integer.parseInt(line.replace("[RETRY_STATUS]", "").trim()));
-                    continue;
+                case CELL: {
+                    ClientEvent.Cell cell = (ClientEvent.Cell) e;
+                    applyCell(cell.row, cell.col, cell.symbol);
+                    break;
                 }
-
-                if (line.startsWith("FILE|")) {
-                    handleIncomingFile(rawIn, line);
-                    continue;
+                case ROLE:
+                    predictor.setSymbol(((ClientEvent.Role) e).symbol);
+                    break;
+                case MOVE_ACK:
+                    predictor.onAck(((ClientEvent.MoveResult) e).seq);
+                    break;
+                case MOVE_REJECT:
+                    if (predictor.onReject(((ClientEvent.MoveResult) e).seq) && !gamePanel.isReplaying()) {
+                        int r = predictor.getPendingRow();
+                        int c = predictor.getPendingCol();
+                        gamePanel.updateCell(r, c, predictor.confirmedCell(r, c));   // roll back
+                    }
+                    break;
+                case GAME_OVER:
+                    gamePanel.stopReplay();   // the live game comes first
+                    gamePanel.showGameOver(((ClientEvent.GameOver) e).result);
+                    break;
+                case RETRY_STATUS:
+                    gamePanel.stopReplay();
+                    gamePanel.updateRetryStatus(((ClientEvent.RetryStatus) e).count);
+                    break;
+                case CLOCK: {
+                    ClientEvent.Clock clock = (ClientEvent.Clock) e;
+                    gamePanel.updateClock(clock.xMillis, clock.oMillis, clock.running);
+                    break;
                 }
-
-                if (line.startsWith("[TYPING]")) {
-                    showTypingIndicator(line);
-                    continue;
+                case CLOCK_OFF:
+                    gamePanel.hideClock();
+                    break;
+                case REPLAY:
+                    startReplay((ClientEvent.Replay) e);
+                    break;
+                case ANALYSIS: {
+                    ClientEvent.Analysis a = (ClientEvent.Analysis) e;
+                    if (a.marks == markCount()) gamePanel.showAnalysis(a.outcome, a.plies, a.best);   // else stale
+                    break;
                 }
+                case TYPING:
+                    showTypingIndicator(((ClientEvent.Typing) e).names);
+                    break;
+                case PRESENCE_SNAPSHOT:
+                case PRESENCE_DELTA:
+                    updatePresence(e);
+                    break;
+                case MESSAGE:
+                    if (newMessages == null) newMessages = new ArrayList<>();
+                    newMessages.add(toBubble(((ClientEvent.Message) e).line));
+                    break;
+            }
+        }
 
-                if (line.startsWith("USERS|")) {
-                    updateUserList(line);
-                    continue;
-                }
+        if (newMessages != null) {
+            transcript.addAll(newMessages);
+            scrollPane.validate();
+            chatList.ensureIndexIsVisible(transcript.getSize() - 1);
+        }
+    }
 
-                appendBubble(line);
-            }
+    // Authoritative cell; a still-empty cell keeps our tentative move until ACK/REJECT
+    private void applyCell(int r, int c, char val) {
+        predictor.onCell(r, c, val);
+        if (val == ' ' && predictor.isPending(r, c)) return;
+        if (gamePanel.isReplaying()) return;   // redrawn from the predictor when the replay ends
+        gamePanel.updateCell(r, c, val);
+    }
 
-        } catch (IOException e) {
-            appendBubble("[ERROR] Connection closed.");
+    // Replay mode: the panel plays the recorded game while live updates only
+    // reach the predictor; afterwards the live board is drawn back from it
+    private void startReplay(ClientEvent.Replay e) {
+        String x = e.playerX;
+        String o = e.playerO;
+        String result;
+        if (e.result == 'D') result = "Draw";
+        else result = (e.result == 'X' ? "⭐ " + x : "🌙 " + o) + (e.timeout ? " won on time" : " won");
+
+        gamePanel.playReplay("Replay #" + e.gameId + ": " + x + " vs " + o, e.moves, e.delays, result,
+                this::showLiveBoard);
+    }
+
+    private void showLiveBoard() {
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 3; c++) {
+                if (predictor.isPending(r, c)) gamePanel.showTentative(r, c, predictor.getSymbol());
+                else gamePanel.updateCell(r, c, predictor.confirmedCell(r, c));
+            }
         }
     }
 
+    private int markCount() {
+        int n = 0;
+        for (int r = 0; r < 3; r++)
+            for (int c = 0; c < 3; c++)
+                if (predictor.confirmedCell(r, c) != ' ') n++;
+        return n;
+    }
+
+    // Safe from any thread: chat lines go through the same batched pipeline
     private void appendBubble(String fullMessage) {
+        post(ClientEvent.message(fullMessage));
+    }
+
+    // EDT: classify a raw line and turn it into a transcript record
+    private ChatMessage toBubble(String fullMessage) {
 
         if (fullMessage.equals(lastMessageSent) &&
                 fullMessage.startsWith(username + ":")) {
 
-            addBubble(username,
+            lastMessageSent = "";
+            return newBubble(username,
                     fullMessage.substring((username + ": ").length()),
                     new Color(255,215,130,180),   // Gold
                     true);
-
-            lastMessageSent = "";
-            return;
         }
 
 
@@ -324,82 +481,66 @@ public class ChatClient extends JFrame {
         }
 
         boolean rightAlign = sender.equals(username);
-        addBubble(sender, content, bg, rightAlign);
+        return newBubble(sender, content, bg, rightAlign);
     }
 
-    private void addBubble(String sender, String message, Color bgColor, boolean rightAlign) {
-
-        JPanel bubble = new JPanel() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g;
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-                g2.setColor(new Color(bgColor.getRed(), bgColor.getGreen(), bgColor.getBlue(), 70));
-                g2.fillRoundRect(4, 4, getWidth()-8, getHeight()-8, 26, 26);
-
-                g2.setColor(bgColor);
-                g2.fillRoundRect(0, 0, getWidth(), getHeight(), 24, 24);
-            }
-        };
-
-        bubble.setOpaque(false);
-        bubble.setLayout(new BoxLayout(bubble, BoxLayout.Y_AXIS));
-        bubble.setBorder(BorderFactory.createEmptyBorder(10, 15, 10, 15));
-
-        JLabel senderLabel = new JLabel(sender);
-        senderLabel.setForeground(new Color(200,210,255));
-
-        JTextArea msgLabel = new JTextArea(message);
-        msgLabel.setOpaque(false);
-        msgLabel.setEditable(false);
-        msgLabel.setForeground(new Color(235,240,255));
-        msgLabel.setLineWrap(true);
-        msgLabel.setWrapStyleWord(true);
-
-        JLabel timeLabel = new JLabel(java.time.LocalTime.now().format(
-                java.time.format.DateTimeFormatter.ofPattern("hh:mm a")
-        ));
-        timeLabel.setForeground(new Color(170,175,220));
-
-        bubble.add(senderLabel);
-        bubble.add(msgLabel);
-        bubble.add(timeLabel);
+    private static final java.time.format.DateTimeFormatter BUBBLE_TIME =
+            java.time.format.DateTimeFormatter.ofPattern("hh:mm a");
 
-        JPanel align = new JPanel(new BorderLayout());
-        align.setOpaque(false);
-        align.add(bubble, rightAlign ? BorderLayout.EAST : BorderLayout.WEST);
-
-        chatPanel.add(Box.createVerticalStrut(10));
-        chatPanel.add(align);
-        chatPanel.revalidate();
-
-        SwingUtilities.invokeLater(() ->
-                scrollPane.getVerticalScrollBar().setValue(
-                        scrollPane.getVerticalScrollBar().getMaximum()
-                )
-        );
+    private ChatMessage newBubble(String sender, String message, Color bgColor, boolean rightAlign) {
+        return new ChatMessage(sender, message,
+                java.time.LocalTime.now().format(BUBBLE_TIME), bgColor, rightAlign);
     }
 
-    private void showTypingIndicator(String line) {
-        String info = line.replace("[TYPING]", "").trim();
-        if (info.startsWith(username + " ")) return;
+    // "[TYPING] alice,bob" — the full set of typers; empty means nobody
+    private void showTypingIndicator(String[] typers) {
+        StringBuilder names = new StringBuilder();
+        int count = 0;
+        for (String u : typers) {
+            if (u.isBlank() || u.equals(username)) continue;
+            if (count++ > 0) names.append(", ");
+            names.append(u);
+        }
 
-        typingLabel.setText(info);
+        typingLabel.setText(count == 0 ? " "
+                : names + (count == 1 ? " is typing..." : " are typing..."));
 
-        if (typingDisplayTimer != null) typingDisplayTimer.stop();
-        typingDisplayTimer = new Timer(1400, e -> typingLabel.setText(" "));
-        typingDisplayTimer.setRepeats(false);
-        typingDisplayTimer.start();
+        // Fallback: clear the indicator if the server's "stopped" update never
+        // arrives (e.g. connection dropped)
+        if (typingTimeout != null) typingTimeout.cancel();
+        typingTimeout = count > 0
+                ? FrameScheduler.get().schedule(() -> typingLabel.setText(" "), 4000)
+                : null;
     }
 
-    private void updateUserList(String line) {
-        SwingUtilities.invokeLater(() -> {
+    private void updatePresence(ClientEvent event) {
+        if (event.type == ClientEvent.Type.PRESENCE_SNAPSHOT) {
+            ClientEvent.PresenceSnapshot s = (ClientEvent.PresenceSnapshot) event;
             userListModel.clear();
-            for (String u : line.substring(6).split(",")) {
+            for (String u : s.names) {
                 if (!u.isBlank()) userListModel.addElement(u);
             }
-        });
+            presenceVersion = s.version;
+            return;
+        }
+
+        ClientEvent.PresenceDelta e = (ClientEvent.PresenceDelta) event;
+        if (presenceVersion < 0 || e.version <= presenceVersion) return;   // no base yet, or stale
+
+        if (e.version != presenceVersion + 1) {
+            // Missed a delta → ask for a fresh snapshot
+            presenceVersion = -1;
+            if (connection != null) connection.requestUsers();
+            return;
+        }
+
+        for (String u : e.joined) {
+            if (!userListModel.contains(u)) userListModel.addElement(u);
+        }
+        for (String u : e.left) {
+            userListModel.removeElement(u);
+        }
+        presenceVersion = e.version;
     }
 
     private void chooseFile() {
@@ -413,76 +554,11 @@ public class ChatClient extends JFrame {
 
     private void sendFile(String targetUser, File file) {
         try {
-            long size = file.length();
-            String name = file.getName();
-
-            serverOut.println("FILE|" + username + "|" + targetUser + "|" + name + "|" + size);
-            serverOut.flush();
-
-            FileInputStream fis = new FileInputStream(file);
-            OutputStream out = socket.getOutputStream();
-
-            byte[] buf = new byte[4096];
-            int r;
-            while ((r = fis.read(buf)) != -1)
-                out.write(buf, 0, r);
-
-            out.flush();
-            fis.close();
-
-            appendBubble("[FILE SENT] " + name);
+            connection.sendFile(targetUser, file);
+            appendBubble("[FILE SENT] " + file.getName());
 
         } catch (Exception e) {
             appendBubble("[ERROR sending file] " + e.getMessage());
         }
     }
-
-    private void handleIncomingFile(InputStream rawIn, String header) {
-        try {
-            String[] p = header.split("\\|");
-            String sender = p[1];
-            String name = p[3];
-            long size = Long.parseLong(p[4]);
-
-            appendBubble("[FILE RECEIVED] from " + sender + ": " + name);
-
-            File dir = new File("downloads");
-            if (!dir.exists()) dir.mkdir();
-
-            File outFile = new File(dir, name);
-            FileOutputStream fos = new FileOutputStream(outFile);
-
-            byte[] buf = new byte[4096];
-            long remaining = size;
-
-            while (remaining > 0) {
-                int read = rawIn.read(buf, 0, (int) Math.min(buf.length, remaining));
-                if (read == -1) break;
-                fos.write(buf, 0, read);
-                remaining -= read;
-            }
-
-            fos.close();
-
-            appendBubble("[SAVED] → downloads/" + name);
-
-        } catch (Exception e) {
-            appendBubble("[ERROR receiving file] " + e.getMessage());
-        }
-    }
-
-    private void updateGameBoard(String msg) {
-        msg = msg.replace("[GAMEBOARD]", "").trim();
-        String[] parts = msg.split(";");
-
-        for (String p : parts) {
-            if (p.isBlank()) continue;
-            String[] info = p.split(",");
-            gamePanel.updateCell(
-                    Integer.parseInt(info[0]),
-                    Integer.parseInt(info[1]),
-                    info[2].charAt(0)
-            );
-        }
-    }
 }
@@ -0,0 +1,405 @@
+import java.io.*;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+// Headless client side of the chat/game protocol. One instance per socket,
+// no statics and no Swing, so a single JVM can hold as many connections as
+// it likes (the GUI, bots, load tests).
+//
+// Threading: a single reader (start() or readLoop()) decodes server lines
+// into ChatListener callbacks. All send methods are safe from any thread;
+// writes, including the raw bytes of a file upload, are serialized on one
+// lock so lines never interleave.
+public final class ChatConnection implements Closeable {
+
+    public static final int DEFAULT_PORT = 5555;
+
+    private final Socket socket;
+    // Lines and file bodies share one buffered byte stream: a Reader would
+    // read ahead and swallow the start of the next file
+    private final InputStream in;
+    private byte[] lineBuf = new byte[256];
+    private final PrintWriter out;
+    private final OutputStream rawOut;
+    private final Object writeLock = new Object();
+
+    private final String username;
+    private final String greeting;
+
+    private volatile ChatListener listener = new ChatListener() {};
+    private volatile File downloadDir = new File("downloads");
+    private volatile boolean closed = false;
+
+    private ChatConnection(Socket socket, String username) throws IOException {
+        this.socket = socket;
+        this.username = username;
+
+        in = new BufferedInputStream(socket.getInputStream());
+        out = new PrintWriter(socket.getOutputStream(), true);
+        rawOut = socket.getOutputStream();
+
+        // Handshake: server greets first, then expects our username
+        greeting = readLine();
+        if (greeting == null) throw new EOFException("Server closed the connection");
+        out.println(username);
+    }
+
+    // Connects and performs the username handshake; call start() afterwards
+    public static ChatConnection open(String host, int port, String username) throws IOException {
+        Socket socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);   // moves are tiny; don't let Nagle hold them back
+        try {
+            return new ChatConnection(socket, username);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    // First line the server sent, before the username was registered
+    public String getGreeting() {
+        return greeting;
+    }
+
+    public void setListener(ChatListener listener) {
+        this.listener = listener != null ? listener : new ChatListener() {};
+    }
+
+    // Where incoming files are written; null discards them
+    public void setDownloadDir(File dir) {
+        this.downloadDir = dir;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // -------------------- SENDING --------------------
+
+    public void sendChat(String text) {
+        sendLine(text);
+    }
+
+    public void sendPrivate(String target, String text) {
+        sendLine("/pm " + target + " " + text);
+    }
+
+    // row/col are 0-based; the wire format is 1-based
+    public void sendMove(int row, int col) {
+        sendLine("/move " + (row + 1) + " " + (col + 1));
+    }
+
+    // Tagged move: the server answers [MOVE_ACK] / [MOVE_REJECT] with this seq
+    public void sendMove(int row, int col, long seq) {
+        sendLine("/move " + (row + 1) + " " + (col + 1) + " " + seq);
+    }
+
+    // Channels: "#name"; messages arrive as "[#name] user: text" via onMessage
+    public void joinChannel(String channel) {
+        sendLine("/join " + channel);
+    }
+
+    public void leaveChannel(String channel) {
+        sendLine("/leave " + channel);
+    }
+
+    // Answer arrives via onReplay; "/replays [name]" lists game IDs as chat lines
+    public void requestReplay(long gameId) {
+        sendLine("/replay " + gameId);
+    }
+
+    public void sendToChannel(String channel, String text) {
+        sendLine("/say " + channel + " " + text);
+    }
+
+    public void sendRetry() {
+        sendLine("/ttt retry");
+    }
+
+    public void sendTyping() {
+        sendLine("/typing " + username);
+    }
+
+    // Ask for a fresh presence snapshot
+    public void requestUsers() {
+        sendLine("/users");
+    }
+
+    public void setClock(String spec) {
+        sendLine("/ttt clock " + spec);
+    }
+
+    public void sendLine(String line) {
+        synchronized (writeLock) {
+            out.println(line);
+        }
+    }
+
+    // FILE|sender|target|filename|filesize followed by the raw bytes
+    public void sendFile(String targetUser, File file) throws IOException {
+        try (FileInputStream fis = new FileInputStream(file)) {
+            synchronized (writeLock) {
+                out.println("FILE|" + username + "|" + targetUser + "|" + file.getName() + "|" + file.length());
+                out.flush();
+
+                byte[] buf = new byte[4096];
+                int r;
+                while ((r = fis.read(buf)) != -1)
+                    rawOut.write(buf, 0, r);
+                rawOut.flush();
+            }
+        }
+    }
+
+    // Upload from memory (bots / load tests), same wire format as sendFile
+    public void sendFile(String targetUser, String name, byte[] data) throws IOException {
+        synchronized (writeLock) {
+            out.println("FILE|" + username + "|" + targetUser + "|" + name + "|" + data.length);
+            out.flush();
+            rawOut.write(data);
+            rawOut.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException ignored) {}
+    }
+
+    // -------------------- RECEIVING --------------------
+
+    // Runs readLoop() on a daemon thread
+    public Thread start() {
+        Thread t = new Thread(this::readLoop, "chat-" + username);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    // Blocks until the connection ends, dispatching every line to the listener
+    public void readLoop() {
+        try {
+            String line;
+            while ((line = readLine()) != null) {
+                try {
+                    dispatch(line);
+                } catch (RuntimeException e) {
+                    // malformed line: skip it rather than lose the connection
+                }
+            }
+        } catch (IOException e) {
+            // socket closed under us; fall through to onDisconnected
+        } finally {
+            closed = true;
+            listener.onDisconnected();
+        }
+    }
+
+    private void dispatch(String line) {
+        ChatListener l = listener;
+
+        if (line.startsWith("[GAMEBOARD]")) {
+            l.onBoard(decodeBoard(line));
+            return;
+        }
+
+        if (line.startsWith("[GAMEMOVE]")) {
+            // Spectator delta: "[GAMEMOVE] r,c,S"
+            String[] info = line.replace("[GAMEMOVE]", "").trim().split(",");
+            l.onCell(Integer.parseInt(info[0]), Integer.parseInt(info[1]), info[2].charAt(0));
+            return;
+        }
+
+        if (line.startsWith("[MOVE_ACK]")) {
+            l.onMoveAck(Long.parseLong(line.substring(10).trim()));
+            return;
+        }
+
+        if (line.startsWith("[MOVE_REJECT]")) {
+            l.onMoveReject(Long.parseLong(line.substring(13).trim()));
+            return;
+        }
+
+        if (line.startsWith("[GAME_OVER]")) {
+            l.onGameOver(line.replace("[GAME_OVER]", "").trim());
+            return;
+        }
+
+        if (line.startsWith("[RETRY_STATUS]")) {
+            l.onRetryStatus(Integer.parseInt(line.replace("[RETRY_STATUS]", "").trim()));
+            return;
+        }
+
+        if (line.startsWith("[CLOCK]")) {
+            // "[CLOCK] <xMillis> <oMillis> <X|O|->" or "[CLOCK] OFF"
+            String[] p = line.replace("[CLOCK]", "").trim().split(" ");
+            if (p.length < 3) l.onClockOff();
+            else l.onClock(Long.parseLong(p[0]), Long.parseLong(p[1]), p[2].charAt(0));
+            return;
+        }
+
+        if (line.startsWith("[ANALYSIS]")) {
+            decodeAnalysis(l, line);
+            return;
+        }
+
+        if (line.startsWith("FILE|")) {
+            receiveFile(l, line);
+            return;
+        }
+
+        if (line.startsWith("[TYPING]")) {
+            // "[TYPING] alice,bob"
+            l.onTyping(line.replace("[TYPING]", "").trim().split(","));
+            return;
+        }
+
+        if (line.startsWith("PRESENCE|")) {
+            decodePresence(l, line);
+            return;
+        }
+
+        if (line.startsWith("REPLAY|")) {
+            decodeReplay(l, line);
+            return;
+        }
+
+        // Seat assignment is also a normal server line, so report both
+        if (line.startsWith("[SERVER] You are player ")) {
+            l.onRole(line.charAt("[SERVER] You are player ".length()));
+        } else if (line.startsWith("[SERVER] You are connected as a spectator")) {
+            l.onRole(' ');
+        }
+
+        l.onMessage(line);
+    }
+
+    // "REPLAY|<id>|<X|O|D>[T]|<cells>|<delays>|<X name>|<O name>"
+    private static void decodeReplay(ChatListener l, String line) {
+        String[] p = line.split("\\|", 7);
+        if (p.length < 7) return;
+
+        int[] cells = splitInts(p[3]);
+        int[] delays = splitInts(p[4]);
+        if (delays.length != cells.length) return;
+        l.onReplay(Long.parseLong(p[1]), p[5], p[6], p[2].charAt(0), p[2].endsWith("T"), cells, delays);
+    }
+
+    private static int[] splitInts(String csv) {
+        if (csv.isEmpty()) return new int[0];
+        String[] parts = csv.split(",");
+        int[] out = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) out[i] = Integer.parseInt(parts[i]);
+        return out;
+    }
+
+    // "[ANALYSIS] <marks> <X|O|D> <plies> <r,c;r,c...|->"
+    private static void decodeAnalysis(ChatListener l, String line) {
+        String[] p = line.substring(10).trim().split(" ");
+        int[] best = new int[0];
+        if (!p[3].equals("-")) {
+            String[] cells = p[3].split(";");
+            best = new int[cells.length];
+            for (int i = 0; i < cells.length; i++) {
+                best[i] = (cells[i].charAt(0) - '0') * 3 + (cells[i].charAt(2) - '0');
+            }
+        }
+        l.onAnalysis(Integer.parseInt(p[0]), p[1].charAt(0), Integer.parseInt(p[2]), best);
+    }
+
+    // One '\n'-terminated line (trailing '\r' dropped), or null at end of stream
+    private String readLine() throws IOException {
+        int len = 0;
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (len == lineBuf.length) lineBuf = java.util.Arrays.copyOf(lineBuf, len * 2);
+            lineBuf[len++] = (byte) b;
+        }
+        if (b == -1 && len == 0) return null;
+        if (len > 0 && lineBuf[len - 1] == '\r') len--;
+        return new String(lineBuf, 0, len);
+    }
+
+    // "[GAMEBOARD] r,c,S;r,c,S;..." → 9 cells, row-major
+    private static char[] decodeBoard(String msg) {
+        char[] cells = new char[9];
+        java.util.Arrays.fill(cells, ' ');
+
+        msg = msg.replace("[GAMEBOARD]", "").trim();
+        String[] parts = msg.split(";");
+
+        for (String p : parts) {
+            if (p.isBlank()) continue;
+            String[] info = p.split(",");
+            int r = Integer.parseInt(info[0]);
+            int c = Integer.parseInt(info[1]);
+            if (r < 0 || r > 2 || c < 0 || c > 2) continue;
+            cells[r * 3 + c] = info[2].charAt(0);
+        }
+        return cells;
+    }
+
+    // PRESENCE|SNAPSHOT|<version>|a,b,c   or   PRESENCE|DELTA|<version>|JOIN:a,LEAVE:b
+    private static void decodePresence(ChatListener l, String line) {
+        String[] p = line.split("\\|", 4);
+        if (p.length < 4) return;
+
+        long version = Long.parseLong(p[2]);
+        if (p[1].equals("SNAPSHOT")) {
+            l.onPresenceSnapshot(version, p[3].split(","));
+            return;
+        }
+
+        List<String> joined = new ArrayList<>();
+        List<String> left = new ArrayList<>();
+        for (String op : p[3].split(",")) {
+            if (op.startsWith("JOIN:")) joined.add(op.substring(5));
+            else if (op.startsWith("LEAVE:")) left.add(op.substring(6));
+        }
+        l.onPresenceDelta(version, joined.toArray(new String[0]), left.toArray(new String[0]));
+    }
+
+    // FILE|sender|target|filename|filesize, followed by filesize raw bytes
+    private void receiveFile(ChatListener l, String header) {
+        try {
+            String[] p = header.split("\\|");
+            String sender = p[1];
+            String name = p[3];
+            long size = Long.parseLong(p[4]);
+
+            File dir = downloadDir;
+            File outFile = null;
+            OutputStream fos = OutputStream.nullOutputStream();
+            if (dir != null) {
+                if (!dir.exists()) dir.mkdir();
+                outFile = new File(dir, name);
+                fos = new FileOutputStream(outFile);
+            }
+
+            try (OutputStream sink = fos) {
+                byte[] buf = new byte[4096];
+                long remaining = size;
+
+                while (remaining > 0) {
+                    int read = in.read(buf, 0, (int) Math.min(buf.length, remaining));
+                    if (read == -1) break;
+                    sink.write(buf, 0, read);
+                    remaining -= read;
+                }
+            }
+
+            l.onFileReceived(sender, name, outFile);
+
+        } catch (Exception e) {
+            l.onError("[ERROR receiving file] " + e.getMessage());
+        }
+    }
+}
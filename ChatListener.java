@@ -0,0 +1,58 @@
+import java.io.File;
+
+// Typed callbacks for everything the server can tell a client. Called on the
+// connection's reader thread, in wire order; implementations that touch Swing
+// must hand off to the EDT themselves. Every method has an empty default so
+// bots only override what they care about.
+public interface ChatListener {
+
+    // [GAMEBOARD]: full board, 9 cells row-major
+    default void onBoard(char[] cells) {}
+
+    // [GAMEMOVE]: single-cell delta (spectators)
+    default void onCell(int row, int col, char symbol) {}
+
+    // [SERVER] You are player X / spectator: 'X', 'O', or ' ' for spectators
+    default void onRole(char symbol) {}
+
+    default void onMoveAck(long seq) {}
+
+    default void onMoveReject(long seq) {}
+
+    // WIN / LOSE / DRAW
+    default void onGameOver(String result) {}
+
+    default void onRetryStatus(int count) {}
+
+    // running = 'X', 'O', or '-' when stopped
+    default void onClock(long xMillis, long oMillis, char running) {}
+
+    default void onClockOff() {}
+
+    // [ANALYSIS] (spectators): perfect-play verdict for the board with `marks`
+    // marks; outcome 'X', 'O' or 'D', bestCells are r*3+c
+    default void onAnalysis(int marks, char outcome, int plies, int[] bestCells) {}
+
+    // REPLAY| (answer to /replay <id>): a recorded game. result 'X', 'O' or 'D';
+    // cells are r*3+c in move order (X first), delays are think times in ms
+    default void onReplay(long gameId, String playerX, String playerO, char result, boolean timeout,
+                          int[] cells, int[] delayMillis) {}
+
+    // Full set of users currently typing; empty means nobody
+    default void onTyping(String[] names) {}
+
+    default void onPresenceSnapshot(long version, String[] names) {}
+
+    default void onPresenceDelta(long version, String[] joined, String[] left) {}
+
+    // Incoming file; savedTo is null when the connection discards downloads
+    default void onFileReceived(String sender, String name, File savedTo) {}
+
+    // Chat, private messages and every other plain server line
+    default void onMessage(String line) {}
+
+    default void onError(String message) {}
+
+    // Reader thread is about to exit (server closed the socket or close() was called)
+    default void onDisconnected() {}
+}
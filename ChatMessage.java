@@ -0,0 +1,27 @@
+import java.awt.Color;
+import java.awt.font.TextLayout;
+
+// One chat transcript entry. Plain data plus a render cache that the
+// bubble renderer fills in (EDT only) so text is laid out once per width.
+public class ChatMessage {
+
+    public final String sender;
+    public final String text;
+    public final String time;
+    public final Color color;
+    public final boolean rightAlign;
+
+    // --- layout cache (owned by ChatBubbleRenderer) ---
+    int layoutWidth = -1;       // list width the cache was built for
+    TextLayout[] lines;
+    int bubbleWidth;
+    int height;
+
+    public ChatMessage(String sender, String text, String time, Color color, boolean rightAlign) {
+        this.sender = sender;
+        this.text = text;
+        this.time = time;
+        this.color = color;
+        this.rightAlign = rightAlign;
+    }
+}
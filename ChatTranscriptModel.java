@@ -0,0 +1,125 @@
+import javax.swing.AbstractListModel;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Bounded transcript: a ring buffer of ChatMessage records. Once full, the
+// oldest entry is appended to a history file on disk (on a background
+// thread) and dropped from memory, so memory stays flat no matter how long
+// the chat runs. The file is a write-only archive for the user; it is not
+// paged back into the list. When it reaches the cap it is renamed to
+// <file>.1 (replacing the previous one) and a new file is started, so disk
+// use is bounded too. Must be used on the EDT like any Swing model.
+//
+// Settings: -Dchat.history.bytes=4194304 (per history file)
+public class ChatTranscriptModel extends AbstractListModel<ChatMessage> {
+
+    private static final long MAX_HISTORY_BYTES = Long.getLong("chat.history.bytes", 4L << 20);
+
+    private final ChatMessage[] ring;
+    private int head = 0;       // index of the oldest entry
+    private int size = 0;
+
+    private final File historyFile;
+    private BufferedWriter historyOut;      // touched only by spillWriter
+    private long historyBytes;              // ditto
+    private final ExecutorService spillWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "chat-history-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ChatTranscriptModel(int capacity, File historyFile) {
+        this.ring = new ChatMessage[Math.max(1, capacity)];
+        this.historyFile = historyFile;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public ChatMessage getElementAt(int index) {
+        return ring[(head + index) % ring.length];
+    }
+
+    public void add(ChatMessage msg) {
+        if (size == ring.length) {
+            spill(ring[head]);
+            ring[head] = msg;
+            head = (head + 1) % ring.length;
+            // Oldest row left, newest row arrived; the rows in between are untouched
+            fireIntervalRemoved(this, 0, 0);
+            fireIntervalAdded(this, size - 1, size - 1);
+            return;
+        }
+
+        ring[(head + size) % ring.length] = msg;
+        size++;
+        fireIntervalAdded(this, size - 1, size - 1);
+    }
+
+    // Append a batch with a single model event (one layout pass for the whole batch)
+    public void addAll(java.util.List<ChatMessage> batch) {
+        if (batch.isEmpty()) return;
+
+        int oldSize = size;
+        int dropped = 0;
+        for (ChatMessage msg : batch) {
+            if (size == ring.length) {
+                spill(ring[head]);
+                ring[head] = msg;
+                head = (head + 1) % ring.length;
+                dropped++;
+            } else {
+                ring[(head + size) % ring.length] = msg;
+                size++;
+            }
+        }
+
+        // Rows dropped off the top (batch entries that never showed don't count),
+        // then the rows appended after what is left of the old window
+        int removed = Math.min(dropped, oldSize);
+        if (removed > 0) fireIntervalRemoved(this, 0, removed - 1);
+        fireIntervalAdded(this, oldSize - removed, size - 1);
+    }
+
+    // Evicted messages go to disk: "time|sender|text", one per line
+    private void spill(ChatMessage old) {
+        if (historyFile == null) return;
+        spillWriter.execute(() -> {
+            try {
+                if (historyOut == null) {
+                    historyOut = new BufferedWriter(new FileWriter(historyFile, true));
+                    historyBytes = historyFile.length();
+                }
+                String line = old.time + "|" + old.sender + "|" + old.text.replace('\n', ' ');
+                historyOut.write(line);
+                historyOut.newLine();
+                historyOut.flush();
+
+                historyBytes += line.length() + 1;   // chars, close enough for a cap
+                if (historyBytes >= MAX_HISTORY_BYTES) rotate();
+            } catch (IOException e) {
+                System.out.println("Chat history write failed: " + e.getMessage());
+            }
+        });
+    }
+
+    // <file> → <file>.1; the next spill starts a fresh file
+    private void rotate() throws IOException {
+        historyOut.close();
+        historyOut = null;
+        File previous = new File(historyFile.getPath() + ".1");
+        if (previous.exists() && !previous.delete()) {
+            throw new IOException("cannot replace " + previous);
+        }
+        if (!historyFile.renameTo(previous)) {
+            throw new IOException("cannot rotate " + historyFile);
+        }
+    }
+}
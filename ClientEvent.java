@@ -0,0 +1,245 @@
+// Immutable, already-decoded server message. The network thread builds
+// these and queues them; the EDT applies them in batches. Each type carries
+// its own small payload class: switch on `type`, then cast.
+public class ClientEvent {
+
+    public enum Type {
+        BOARD,              // Board
+        CELL,               // Cell
+        GAME_OVER,          // GameOver
+        RETRY_STATUS,       // RetryStatus
+        CLOCK,              // Clock
+        CLOCK_OFF,          // (no payload)
+        ANALYSIS,           // Analysis
+        REPLAY,             // Replay
+        TYPING,             // Typing
+        PRESENCE_SNAPSHOT,  // PresenceSnapshot
+        PRESENCE_DELTA,     // PresenceDelta
+        ROLE,               // Role
+        MOVE_ACK,           // MoveResult
+        MOVE_REJECT,        // MoveResult
+        MESSAGE             // Message
+    }
+
+    private static final ClientEvent CLOCK_OFF = new ClientEvent(Type.CLOCK_OFF);
+
+    public final Type type;
+
+    private ClientEvent(Type type) {
+        this.type = type;
+    }
+
+    // -------------------- PAYLOADS --------------------
+
+    public static final class Board extends ClientEvent {
+        public final char[] cells;      // 9 cells, row-major
+
+        private Board(char[] cells) {
+            super(Type.BOARD);
+            this.cells = cells;
+        }
+    }
+
+    public static final class Cell extends ClientEvent {
+        public final int row, col;
+        public final char symbol;
+
+        private Cell(int row, int col, char symbol) {
+            super(Type.CELL);
+            this.row = row;
+            this.col = col;
+            this.symbol = symbol;
+        }
+    }
+
+    public static final class GameOver extends ClientEvent {
+        public final String result;     // WIN / LOSE / DRAW
+
+        private GameOver(String result) {
+            super(Type.GAME_OVER);
+            this.result = result;
+        }
+    }
+
+    public static final class RetryStatus extends ClientEvent {
+        public final int count;
+
+        private RetryStatus(int count) {
+            super(Type.RETRY_STATUS);
+            this.count = count;
+        }
+    }
+
+    public static final class Clock extends ClientEvent {
+        public final long xMillis, oMillis;
+        public final char running;      // 'X', 'O' or '-' when stopped
+
+        private Clock(long xMillis, long oMillis, char running) {
+            super(Type.CLOCK);
+            this.xMillis = xMillis;
+            this.oMillis = oMillis;
+            this.running = running;
+        }
+    }
+
+    public static final class Analysis extends ClientEvent {
+        public final int marks;         // marks on the analysed board (to drop stale ones)
+        public final char outcome;      // X / O / D with perfect play
+        public final int plies;         // plies until the game ends
+        public final char[] best;       // 9 cells, '*' on the best moves
+
+        private Analysis(int marks, char outcome, int plies, char[] best) {
+            super(Type.ANALYSIS);
+            this.marks = marks;
+            this.outcome = outcome;
+            this.plies = plies;
+            this.best = best;
+        }
+    }
+
+    public static final class Replay extends ClientEvent {
+        public final long gameId;
+        public final String playerX, playerO;
+        public final char result;       // X / O / D
+        public final boolean timeout;   // the loser ran out of time
+        public final int[] moves;       // cells r*3+c
+        public final int[] delays;      // think time per move (ms)
+
+        private Replay(long gameId, String playerX, String playerO, char result, boolean timeout,
+                       int[] moves, int[] delays) {
+            super(Type.REPLAY);
+            this.gameId = gameId;
+            this.playerX = playerX;
+            this.playerO = playerO;
+            this.result = result;
+            this.timeout = timeout;
+            this.moves = moves;
+            this.delays = delays;
+        }
+    }
+
+    public static final class Typing extends ClientEvent {
+        public final String[] names;
+
+        private Typing(String[] names) {
+            super(Type.TYPING);
+            this.names = names;
+        }
+    }
+
+    public static final class PresenceSnapshot extends ClientEvent {
+        public final long version;
+        public final String[] names;
+
+        private PresenceSnapshot(long version, String[] names) {
+            super(Type.PRESENCE_SNAPSHOT);
+            this.version = version;
+            this.names = names;
+        }
+    }
+
+    public static final class PresenceDelta extends ClientEvent {
+        public final long version;
+        public final String[] joined, left;
+
+        private PresenceDelta(long version, String[] joined, String[] left) {
+            super(Type.PRESENCE_DELTA);
+            this.version = version;
+            this.joined = joined;
+            this.left = left;
+        }
+    }
+
+    public static final class Role extends ClientEvent {
+        public final char symbol;       // 'X', 'O', ' ' for spectator
+
+        private Role(char symbol) {
+            super(Type.ROLE);
+            this.symbol = symbol;
+        }
+    }
+
+    public static final class MoveResult extends ClientEvent {
+        public final long seq;          // move sequence number
+
+        private MoveResult(Type type, long seq) {
+            super(type);
+            this.seq = seq;
+        }
+    }
+
+    public static final class Message extends ClientEvent {
+        public final String line;       // raw chat/server line
+
+        private Message(String line) {
+            super(Type.MESSAGE);
+            this.line = line;
+        }
+    }
+
+    // -------------------- FACTORIES --------------------
+
+    public static ClientEvent board(char[] cells) {
+        return new Board(cells);
+    }
+
+    public static ClientEvent cell(int row, int col, char symbol) {
+        return new Cell(row, col, symbol);
+    }
+
+    public static ClientEvent gameOver(String result) {
+        return new GameOver(result);
+    }
+
+    public static ClientEvent retryStatus(int count) {
+        return new RetryStatus(count);
+    }
+
+    public static ClientEvent clock(long xMillis, long oMillis, char running) {
+        return new Clock(xMillis, oMillis, running);
+    }
+
+    public static ClientEvent clockOff() {
+        return CLOCK_OFF;
+    }
+
+    public static ClientEvent analysis(int marks, char outcome, int plies, int[] bestCells) {
+        char[] best = new char[9];
+        java.util.Arrays.fill(best, ' ');
+        for (int cell : bestCells) best[cell] = '*';
+        return new Analysis(marks, outcome, plies, best);
+    }
+
+    public static ClientEvent replay(long gameId, String playerX, String playerO, char result, boolean timeout,
+                                     int[] moves, int[] delays) {
+        return new Replay(gameId, playerX, playerO, result, timeout, moves, delays);
+    }
+
+    public static ClientEvent typing(String[] names) {
+        return new Typing(names);
+    }
+
+    public static ClientEvent presenceSnapshot(long version, String[] names) {
+        return new PresenceSnapshot(version, names);
+    }
+
+    public static ClientEvent presenceDelta(long version, String[] joined, String[] left) {
+        return new PresenceDelta(version, joined, left);
+    }
+
+    public static ClientEvent role(char symbol) {
+        return new Role(symbol);
+    }
+
+    public static ClientEvent moveAck(long seq) {
+        return new MoveResult(Type.MOVE_ACK, seq);
+    }
+
+    public static ClientEvent moveReject(long seq) {
+        return new MoveResult(Type.MOVE_REJECT, seq);
+    }
+
+    public static ClientEvent message(String line) {
+        return new Message(line);
+    }
+}
@@ -0,0 +1,367 @@
+import java.io.*;
+import java.net.*;
+import java.util.Arrays;
+
+// ======================== CLIENT HANDLER ================================
+class ClientHandler extends Thread {
+
+    private final Socket socket;
+    // Lines and file bodies come off one buffered byte stream; a Reader
+    // would read ahead into the bytes of an uploaded file
+    private InputStream in;
+    private byte[] lineBuf = new byte[256];
+    // Writes never happen on the caller's thread: see ClientOutbox
+    private ClientOutbox outbox;
+    private String username;
+    int sessionId = SessionRegistry.NONE;   // set by ChatServer.addClient
+    private final RateLimiter limiter = new RateLimiter();
+
+    public ClientHandler(Socket socket) {
+        this.socket = socket;
+    }
+
+    // Queue a line; never blocks, safe from any thread (game lock, timer, shards)
+    public void send(String msg) {
+        sendEncoded((msg + "\n").getBytes());
+    }
+
+    // A line already encoded (text + '\n'), shared by many recipients
+    public void sendEncoded(byte[] line) {
+        ClientOutbox o = outbox;
+        if (o != null) o.offer(line);
+    }
+
+    // Text waiting in this client's outbox
+    long queuedBytes() {
+        ClientOutbox o = outbox;
+        return o != null ? o.queuedBytes() : 0;
+    }
+
+    // Start the writer thread for this connection's output
+    void attachOutput(OutputStream sink) {
+        outbox = new ClientOutbox(socket.getRemoteSocketAddress() + "", sink, this::closeSocket);
+        outbox.start();
+    }
+
+    // Let queued lines (e.g. a last error) go out, then close
+    public void close() {
+        ClientOutbox o = outbox;
+        if (o != null) o.finish();
+        else closeSocket();
+    }
+
+    private void closeSocket() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {}
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public void run() {
+        try {
+
+            in = new BufferedInputStream(socket.getInputStream());
+            attachOutput(new BufferedOutputStream(socket.getOutputStream()));
+
+            // Ask for username
+            send("Enter username:");
+            username = readLine();
+
+            if (!validUsername(username)) {
+                ChatServer.metrics.connectionsRejected.increment();
+                send("[ERROR] Invalid username. Disconnecting.");
+                close();
+                return;
+            }
+
+            AsyncLog.info("[SERVER] Username received: {}", username);
+            outbox.setName("writer-" + username);
+
+            // Register the client
+            ChatServer.addClient(username, this);
+            // addClient refused a duplicate name: no session ID was assigned
+            if (sessionId == SessionRegistry.NONE) {
+                return;
+            }
+
+            ChatServer.broadcast("[SERVER] " + username + " has joined!");
+
+            String message;
+
+            while ((message = readLine()) != null) {
+                if (!dispatch(message)) break;
+            }
+
+        } catch (IOException e) {
+            AsyncLog.warn("[SERVER] Client I/O error for {}: {}", username, e.getMessage());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+        } finally {
+            ChatServer.removeClient(this);
+            close();
+        }
+    }
+
+    // One line from the client: flood control, then command routing.
+    // Returns false when the client should be disconnected.
+    private boolean dispatch(String message) throws InterruptedException {
+        // ---------------- FLOOD CONTROL ----------------
+        RateLimiter.MessageClass type = RateLimiter.MessageClass.of(message);
+        RateLimiter.Verdict verdict = limiter.admit(type);
+        if (verdict == RateLimiter.Verdict.DISCONNECT) {
+            AsyncLog.warn("[SERVER] Disconnecting {}: message flood.", username);
+            send("[ERROR] Too many messages. Disconnecting.");
+            return false;
+        }
+        if (verdict == RateLimiter.Verdict.DROP) {
+            if (limiter.firstStrike()) {
+                send("[ERROR] You're sending messages too fast - some were dropped.");
+            }
+            return true;
+        }
+        ChatServer.metrics.message(type);
+
+        // ---------------- FILE TRANSFER ----------------
+        if (message.startsWith("FILE|")) {
+            return handleFileTransfer(message);
+        }
+
+        // ---------------- TYPING INDICATOR -------------
+        if (message.startsWith("/typing")) {
+            ChatServer.typing.typing(username);
+            return true;
+        }
+
+        // ---------------- PRESENCE RESYNC --------------
+        if (message.equals("/users")) {
+            ChatServer.presence.sendSnapshot(this, !ChatServer.isPlayer(sessionId));
+            return true;
+        }
+
+        // ---------------- SERVER STATS -----------------
+        if (message.equals("/stats")) {
+            for (String line : ChatServer.metrics.snapshot().split("\n")) {
+                send(line);
+            }
+            return true;
+        }
+
+        // ---------------- CHANNELS ---------------------
+        if (message.startsWith("/join") || message.startsWith("/leave") || message.startsWith("/say")) {
+            String[] p = message.split(" ", 3);
+            String channel = p.length > 1 ? ChannelIndex.normalize(p[1]) : null;
+            if (channel != null && p[0].equals("/join")) {
+                ChatServer.channels.join(sessionId, this, channel);
+            } else if (channel != null && p[0].equals("/leave")) {
+                ChatServer.channels.leave(sessionId, this, channel);
+            } else if (channel != null && p[0].equals("/say") && p.length == 3) {
+                ChatServer.typing.stopped(username);
+                ChatServer.channels.say(this, channel, p[2]);
+            } else {
+                send("[ERROR] Usage: /join #chan | /leave #chan | /say #chan <message>");
+            }
+            return true;
+        }
+
+        // ---------------- RATINGS ----------------------
+        if (message.equals("/rating") || message.startsWith("/rating ")) {
+            String who = message.length() > 8 ? message.substring(8).trim() : "";
+            ChatServer.ratings.sendRating(this, who.isEmpty() ? username : who);
+            return true;
+        }
+
+        if (message.equals("/top") || message.startsWith("/top ")) {
+            int n = 10;
+            try {
+                if (message.length() > 5) n = Integer.parseInt(message.substring(5).trim());
+            } catch (NumberFormatException e) {
+                send("[ERROR] Usage: /top [count]");
+                return true;
+            }
+            ChatServer.ratings.sendTop(this, n);
+            return true;
+        }
+
+        // ---------------- REPLAYS ----------------------
+        if (message.equals("/replays") || message.startsWith("/replays ")) {
+            String who = message.length() > 9 ? message.substring(9).trim() : "";
+            ChatServer.replays.sendList(this, who.isEmpty() ? username : who);
+            return true;
+        }
+
+        if (message.equals("/replay") || message.startsWith("/replay ")) {
+            try {
+                ChatServer.replays.sendReplay(this, Long.parseLong(message.substring(7).trim()));
+            } catch (NumberFormatException e) {
+                send("[ERROR] Usage: /replay <game id>");
+            }
+            return true;
+        }
+
+        // ---------------- PRIVATE MESSAGE --------------
+        if (message.startsWith("/pm")) {
+            String[] p = message.split(" ", 3);
+            if (p.length >= 3) {
+                String target = p[1];
+                String msg = p[2];
+                ChatServer.sendPrivate(target, "[PM] " + username + ": " + msg);
+            } else {
+                send("[ERROR] Usage: /pm <username> <message>");
+            }
+            return true;
+        }
+
+        // ---------------- TIC TAC TOE: MOVE ------------
+        if (message.startsWith("/move")) {
+            try {
+                String[] p = message.split(" ");
+                int r = Integer.parseInt(p[1]) - 1;  // 1-3 -> 0-2
+                int c = Integer.parseInt(p[2]) - 1;
+                long seq = p.length > 3 ? Long.parseLong(p[3]) : -1;   // optional
+                long start = System.nanoTime();
+                ChatServer.game.makeMove(sessionId, r, c, seq);
+                ChatServer.metrics.makeMove.record(System.nanoTime() - start);
+            } catch (Exception e) {
+                send("[ERROR] Invalid move command. Use: /move row col [seq]");
+            }
+            return true;
+        }
+
+        // ---------------- TIC TAC TOE: CLOCK -----------
+        if (message.startsWith("/ttt clock")) {
+            ChatServer.game.setTimeControl(sessionId, message.substring(10).trim());
+            return true;
+        }
+
+        // ---------------- TIC TAC TOE: RETRY -----------
+        if (message.startsWith("/ttt retry")) {
+            ChatServer.game.handleRetry(sessionId);
+            return true;
+        }
+
+        // ---------------- NORMAL BROADCAST -------------
+        ChatServer.typing.stopped(username);
+        ChatServer.broadcast(username + ": " + message);
+        return true;
+    }
+
+    // Non-blank and no control characters: names are stored and sent one per
+    // line, so a stray \r would split them on the way back in. Chat goes out
+    // as "name: text", so a name must not look like a tagged or '|' frame either.
+    static boolean validUsername(String name) {
+        if (name == null || name.trim().isEmpty()) return false;
+        if (name.startsWith("[") || name.indexOf('|') >= 0) return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.isISOControl(name.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    // One '\n'-terminated line (trailing '\r' dropped), or null at end of stream
+    private String readLine() throws IOException {
+        int len = 0;
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (len == lineBuf.length) lineBuf = Arrays.copyOf(lineBuf, len * 2);
+            lineBuf[len++] = (byte) b;
+        }
+        if (b == -1 && len == 0) return null;
+        if (len > 0 && lineBuf[len - 1] == '\r') len--;
+        return new String(lineBuf, 0, len);
+    }
+
+    // False if the announced size can't be read or relayed: the bytes that
+    // follow can't be skipped safely, so the sender is disconnected
+    private boolean handleFileTransfer(String header) {
+        ServerEvents.FileTransfer event = new ServerEvents.FileTransfer();
+        event.begin();
+        long relayed = 0;
+        boolean completed = false;
+
+        try {
+            // FILE|sender|target|filename|filesize
+            String[] p = header.split("\\|");
+            if (p.length < 5) {
+                send("[ERROR] Invalid file header.");
+                return true;
+            }
+
+            String sender = p[1];
+            String target = p[2];
+            String filename = p[3];
+            long size;
+            try {
+                size = Long.parseLong(p[4]);
+            } catch (NumberFormatException e) {
+                size = -1;
+            }
+            if (size <= 0 || size > ClientOutbox.MAX_FILE_BYTES) {
+                AsyncLog.warn("[SERVER] Disconnecting {}: bad file size '{}'.", username, p[4]);
+                send("[ERROR] File size must be between 1 and " + ClientOutbox.MAX_FILE_BYTES + " bytes. Disconnecting.");
+                return false;
+            }
+            event.sender = sender;
+            event.receiver = target;
+            event.fileName = filename;
+
+            ClientHandler receiver = ChatServer.findClient(target);
+            ClientOutbox.FileStream stream = receiver == null || receiver.outbox == null ? null
+                    : receiver.outbox.openFile(("FILE|" + sender + "|" + target + "|" + filename + "|" + size + "\n").getBytes(), size);
+            if (stream == null) {
+                send("[ERROR] Target user not found for file transfer.");
+            }
+
+            // Read a chunk, hand it to the receiver's writer; no lock is held
+            // across our socket reads. If the receiver stalls, the rest of the
+            // upload is still read (and dropped) so our own stream stays framed.
+            long start = System.nanoTime();
+            long remaining = size;
+            byte[] buffer = new byte[8192];
+            try {
+                while (remaining > 0) {
+                    int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read == -1) break;
+                    remaining -= read;
+
+                    if (stream != null && !stream.put(Arrays.copyOf(buffer, read))) {
+                        stream.abort();
+                        stream = null;
+                        send("[ERROR] " + target + " is not receiving; file transfer cancelled.");
+                    }
+                }
+            } finally {
+                if (stream != null && remaining > 0) stream.abort();
+                relayed = size - remaining;
+            }
+            ChatServer.metrics.fileTransferred(relayed, System.nanoTime() - start);
+
+            completed = stream != null && remaining == 0;
+            if (completed) {
+                AsyncLog.info("[SERVER] File '{}' sent from {} to {}", filename, sender, target);
+            } else {
+                AsyncLog.warn("[SERVER] File '{}' from {} to {} not delivered", filename, sender, target);
+            }
+            return true;
+
+        } catch (Exception e) {
+            AsyncLog.error("[SERVER ERROR] File transfer error: {}", e.getMessage());
+            send("[ERROR] File transfer failed: " + e.getMessage());
+            return true;
+
+        } finally {
+            // Failed and refused transfers are recorded too, with completed=false
+            if (event.shouldCommit()) {
+                event.room = ServerEvents.MAIN_ROOM;
+                event.bytes = relayed;
+                event.completed = completed;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ===============================================
+//        CLIENT OUTBOX (one writer per connection)
+// ===============================================
+// Everything sent to a client is queued here and written by the
+// connection's own "writer" thread, so a sender (game lock, server timer,
+// spectator shard, channel publish) never blocks on someone else's socket.
+// Queued text is capped in bytes; a client that falls that far behind is
+// disconnected instead of growing the heap.
+//
+// A file is queued as one frame: the writer sends its header, then only that
+// file's chunks until the announced size is out, so no text line can land
+// inside the bytes. If the upload fails part-way the receiver's stream can't
+// be framed any more, so its connection is closed.
+//
+// Settings: -Dclient.outbox.bytes=1048576, -Dfile.stall.ms=30000,
+//           -Dfile.maxBytes=104857600
+class ClientOutbox extends Thread {
+
+    private static final long MAX_BYTES = Long.getLong("client.outbox.bytes", 1 << 20);
+    private static final long STALL_MILLIS = Long.getLong("file.stall.ms", 30_000);
+    static final long MAX_FILE_BYTES = Long.getLong("file.maxBytes", 100 << 20);
+    private static final int FILE_CHUNKS = 16;
+    private static final Object CLOSE = new Object();   // graceful close: write what's queued, then stop
+
+    // One file on its way to this client; filled by the uploader's thread
+    final class FileStream {
+        final byte[] header;
+        final long size;
+        final ArrayBlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(FILE_CHUNKS);
+        volatile boolean aborted = false;
+
+        FileStream(byte[] header, long size) {
+            this.header = header;
+            this.size = size;
+        }
+
+        // Blocks the uploader while this client is slow; false if the client
+        // is gone or stalled for longer than STALL_MILLIS
+        boolean put(byte[] chunk) throws InterruptedException {
+            long deadline = System.nanoTime() + STALL_MILLIS * 1_000_000;
+            while (!closed) {
+                if (chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) return true;
+                if (System.nanoTime() - deadline > 0) return false;
+            }
+            return false;
+        }
+
+        // Upload ended early: the writer drops this client
+        void abort() {
+            aborted = true;
+        }
+    }
+
+    private final OutputStream out;
+    private final Runnable onClose;
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();   // byte[], FileStream or CLOSE
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private volatile boolean closed = false;
+
+    ClientOutbox(String name, OutputStream out, Runnable onClose) {
+        super("writer-" + name);
+        setDaemon(true);
+        this.out = out;
+        this.onClose = onClose;
+    }
+
+    // Queue one encoded line. Never blocks; false if closed or over budget
+    // (the client is then disconnected).
+    public boolean offer(byte[] line) {
+        if (closed) return false;
+        if (queuedBytes.addAndGet(line.length) > MAX_BYTES) {
+            queuedBytes.addAndGet(-line.length);
+            ChatServer.metrics.slowDisconnects.increment();
+            AsyncLog.warn("[SERVER] Disconnecting {}: not reading ({} bytes queued).", getName(), queuedBytes.get());
+            closeNow();
+            return false;
+        }
+        queue.offer(line);
+        return true;
+    }
+
+    // Queue a file; feed it with put() and abort() on failure. Null if closed.
+    public FileStream openFile(byte[] header, long size) {
+        if (closed) return null;
+        FileStream f = new FileStream(header, size);
+        queue.offer(f);
+        return f;
+    }
+
+    // Write what is already queued, then close
+    public void finish() {
+        if (closed) return;
+        closed = true;
+        queue.offer(CLOSE);
+        ServerScheduler.schedule(onClose, STALL_MILLIS);   // a stalled socket doesn't get to hold on
+    }
+
+    // Drop the queue and close right away
+    public void closeNow() {
+        closed = true;
+        interrupt();
+        onClose.run();
+    }
+
+    public long queuedBytes() {
+        return queuedBytes.get();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Object frame = queue.take();
+                if (frame == CLOSE) break;
+
+                if (frame instanceof FileStream) {
+                    writeFile((FileStream) frame);
+                } else {
+                    byte[] line = (byte[]) frame;
+                    out.write(line);
+                    queuedBytes.addAndGet(-line.length);
+                }
+                if (queue.isEmpty()) out.flush();   // one flush per burst, not per line
+            }
+            out.flush();
+        } catch (IOException | InterruptedException e) {
+            // socket closed under us, or closeNow()
+        } finally {
+            closed = true;
+            queue.clear();
+            onClose.run();
+        }
+    }
+
+    private void writeFile(FileStream f) throws IOException, InterruptedException {
+        out.write(f.header);
+        long left = f.size;
+        while (left > 0) {
+            byte[] chunk = f.chunks.poll(100, TimeUnit.MILLISECONDS);
+            if (chunk == null) {
+                if (f.aborted) {
+                    out.flush();   // what did arrive, then drop the connection
+                    throw new IOException("file transfer aborted");
+                }
+                continue;
+            }
+            out.write(chunk);
+            left -= chunk.length;
+        }
+    }
+}
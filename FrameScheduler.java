@@ -0,0 +1,169 @@
+import javax.swing.*;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// One clock for every client animation and UI timer. A single Swing timer
+// ticks about once per display frame while something is animating, runs all
+// registered animations with the same delta-time, then issues at most one
+// repaint per component. With no animations it sleeps until the next
+// delayed task, or stops completely if there is none.
+//
+// Everything except runNextFrame() must be called on the EDT.
+public final class FrameScheduler {
+
+    public interface Animation {
+        // Return false when finished; the animation is then unregistered
+        boolean tick(long nowNanos, float dtSeconds);
+    }
+
+    // Handle for a delayed task
+    public static final class Task implements Comparable<Task> {
+        private final Runnable action;
+        private final long dueAt;
+        private boolean cancelled;
+
+        private Task(Runnable action, long dueAt) {
+            this.action = action;
+            this.dueAt = dueAt;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            return Long.compare(dueAt, o.dueAt);
+        }
+    }
+
+    private static final int FRAME_MILLIS = 16;
+    private static final FrameScheduler INSTANCE = new FrameScheduler();
+
+    private final Timer timer = new Timer(FRAME_MILLIS, e -> frame());
+    private final List<Animation> animations = new ArrayList<>();
+    private final PriorityQueue<Task> delayed = new PriorityQueue<>();
+    private final ConcurrentLinkedQueue<Runnable> nextFrame = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakePosted = new AtomicBoolean(false);
+    // One pooled region per component, reused every frame; width < 0 means
+    // not dirty this frame. `dirty` lists the components to repaint.
+    private final Map<JComponent, Rectangle> regions = new WeakHashMap<>();
+    private final List<JComponent> dirty = new ArrayList<>();
+
+    private long lastFrame = System.nanoTime();
+    private long armedFor;          // nanoTime the timer will fire at (valid while running)
+
+    private FrameScheduler() {
+        timer.setRepeats(false);
+    }
+
+    public static FrameScheduler get() {
+        return INSTANCE;
+    }
+
+    public void register(Animation animation) {
+        if (!animations.contains(animation)) animations.add(animation);
+        arm(FRAME_MILLIS);
+    }
+
+    public void unregister(Animation animation) {
+        animations.remove(animation);
+    }
+
+    // Run once on the next frame. Safe from any thread.
+    public void runNextFrame(Runnable action) {
+        nextFrame.add(action);
+        if (SwingUtilities.isEventDispatchThread()) {
+            arm(FRAME_MILLIS);
+        } else if (wakePosted.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                wakePosted.set(false);
+                arm(FRAME_MILLIS);
+            });
+        }
+    }
+
+    // Run once after a delay (frame-aligned); cancel with Task.cancel()
+    public Task schedule(Runnable action, long delayMillis) {
+        Task t = new Task(action, System.nanoTime() + delayMillis * 1_000_000);
+        delayed.add(t);
+        arm(delayMillis);
+        return t;
+    }
+
+    // Coalesced repaint: all requests for a component in one frame become one repaint
+    public void requestRepaint(JComponent c, int x, int y, int w, int h) {
+        Rectangle r = regions.get(c);
+        if (r == null) {
+            r = new Rectangle(0, 0, -1, -1);
+            regions.put(c, r);
+        }
+        if (r.width < 0) {
+            r.setBounds(x, y, w, h);
+            dirty.add(c);
+        } else {
+            r.add(x, y);
+            r.add(x + w, y + h);
+        }
+    }
+
+    public void requestRepaint(JComponent c) {
+        requestRepaint(c, 0, 0, c.getWidth(), c.getHeight());
+    }
+
+    private void frame() {
+        long now = System.nanoTime();
+        float dt = Math.min(0.1f, (now - lastFrame) / 1e9f);
+        lastFrame = now;
+
+        Runnable r;
+        while ((r = nextFrame.poll()) != null) {
+            r.run();
+        }
+
+        while (!delayed.isEmpty() && delayed.peek().dueAt - now <= 0) {
+            Task t = delayed.poll();
+            if (!t.cancelled) t.action.run();
+        }
+
+        for (int i = animations.size() - 1; i >= 0; i--) {
+            if (!animations.get(i).tick(now, dt)) {
+                animations.remove(i);
+            }
+        }
+
+        for (int i = 0; i < dirty.size(); i++) {
+            JComponent c = dirty.get(i);
+            Rectangle d = regions.get(c);
+            c.repaint(d.x, d.y, d.width, d.height);
+            d.width = -1;
+        }
+        dirty.clear();
+
+        // Decide when to wake next: every frame while animating,
+        // otherwise at the next delayed task, otherwise never
+        while (!delayed.isEmpty() && delayed.peek().cancelled) delayed.poll();
+
+        if (!animations.isEmpty() || !nextFrame.isEmpty()) {
+            arm(FRAME_MILLIS);
+        } else if (!delayed.isEmpty()) {
+            arm(Math.max(1, (delayed.peek().dueAt - System.nanoTime()) / 1_000_000));
+        }
+    }
+
+    // Make sure the timer fires within delayMillis (never pushes it later)
+    private void arm(long delayMillis) {
+        long fireAt = System.nanoTime() + delayMillis * 1_000_000;
+        if (timer.isRunning() && armedFor - fireAt <= 0) return;
+
+        armedFor = fireAt;
+        timer.setInitialDelay((int) Math.max(0, Math.min(Integer.MAX_VALUE, delayMillis)));
+        timer.restart();
+    }
+}
@@ -0,0 +1,138 @@
+import java.util.concurrent.ScheduledFuture;
+
+// ===============================================
+//        TIC TAC TOE TIME CONTROL (server side)
+// ===============================================
+// Chess-style clock for one game. Not thread-safe on its own: every call
+// happens while holding the owning TicTacToeGame's monitor.
+//
+// Specs:  "off"        no clock
+//         "60+2"       60s base, +2s after each move (Fischer)
+//         "10/move"    fixed 10s per move
+// Each value is whole seconds, at most MAX_SECONDS.
+class GameClock {
+
+    private static final long MAX_SECONDS = 24 * 60 * 60;
+
+    private final long baseMillis;
+    private final long incrementMillis;
+    private final boolean perMove;
+
+    private long remainingX;
+    private long remainingO;
+    private char running = ' ';        // 'X', 'O' or ' ' when stopped
+    private long turnStartedAt;        // System.nanoTime() when running side started
+    private ScheduledFuture<?> deadline;
+
+    private GameClock(long baseMillis, long incrementMillis, boolean perMove) {
+        this.baseMillis = baseMillis;
+        this.incrementMillis = incrementMillis;
+        this.perMove = perMove;
+        this.remainingX = baseMillis;
+        this.remainingO = baseMillis;
+    }
+
+    // Returns null for "off"; throws IllegalArgumentException for bad specs
+    public static GameClock parse(String spec) {
+        if (spec == null) return null;
+        spec = spec.trim().toLowerCase();
+        if (spec.isEmpty() || spec.equals("off")) return null;
+
+        long base;
+        long inc = 0;
+        boolean perMove = false;
+
+        if (spec.endsWith("/move")) {
+            base = millis(spec.substring(0, spec.length() - 5));
+            perMove = true;
+        } else if (spec.contains("+")) {
+            String[] p = spec.split("\\+", 2);
+            base = millis(p[0]);
+            inc = millis(p[1]);
+        } else {
+            base = millis(spec);
+        }
+
+        if (base <= 0 || inc < 0) {
+            throw new IllegalArgumentException("Clock times must be positive.");
+        }
+        return new GameClock(base, inc, perMove);
+    }
+
+    // "90" → 90000; out-of-range values are a bad spec, not an overflow
+    private static long millis(String seconds) {
+        long s = Long.parseLong(seconds.trim());
+        if (s > MAX_SECONDS) {
+            throw new IllegalArgumentException("Clock times are limited to " + MAX_SECONDS + "s.");
+        }
+        return s * 1000;
+    }
+
+    // Start the clock for a side; onTimeout fires on the shared server timer
+    public void start(char side, Runnable onTimeout) {
+        cancel();
+        if (perMove) setRemaining(side, baseMillis);
+
+        running = side;
+        turnStartedAt = System.nanoTime();
+        deadline = ServerScheduler.schedule(onTimeout, getRemaining(side));
+    }
+
+    // Stop the running side's clock after a move.
+    // Returns false if that side's time had already run out (flag fell).
+    public boolean stop() {
+        if (running == ' ') return true;
+
+        char side = running;
+        long left = remainingNow(side);
+        cancel();
+
+        if (left <= 0) {
+            setRemaining(side, 0);
+            return false;
+        }
+
+        setRemaining(side, perMove ? baseMillis : left + incrementMillis);
+        return true;
+    }
+
+    public void cancel() {
+        if (deadline != null) {
+            deadline.cancel(false);
+            deadline = null;
+        }
+        if (running != ' ') {
+            setRemaining(running, Math.max(0, remainingNow(running)));
+            running = ' ';
+        }
+    }
+
+    // Sync message for clients: "[CLOCK] <xMillis> <oMillis> <X|O|->"
+    public String syncMessage() {
+        return "[CLOCK] " + Math.max(0, remainingNow('X')) + " "
+                + Math.max(0, remainingNow('O')) + " "
+                + (running == ' ' ? '-' : running);
+    }
+
+    public String describe() {
+        long s = baseMillis / 1000;
+        return perMove ? s + "/move" : s + "+" + (incrementMillis / 1000);
+    }
+
+    private long remainingNow(char side) {
+        long left = getRemaining(side);
+        if (side == running) {
+            left -= (System.nanoTime() - turnStartedAt) / 1_000_000;
+        }
+        return left;
+    }
+
+    private long getRemaining(char side) {
+        return side == 'X' ? remainingX : remainingO;
+    }
+
+    private void setRemaining(char side, long millis) {
+        if (side == 'X') remainingX = millis;
+        else remainingO = millis;
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free log-linear latency histogram (nanoseconds). Each power of two is
+// split into 32 linear sub-buckets, so any recorded value is reported within
+// ~3% of its true value over the whole 0 .. 2^62 ns range. Recording is one
+// atomic increment; many threads can record at once.
+//
+// Coordinated omission: a load generator that waits for each response before
+// sending the next request stops measuring exactly when the server stalls.
+// recordWithExpectedInterval() back-fills the samples that *would* have been
+// taken during a stall (same correction as HdrHistogram), and callers should
+// measure from the intended send time, not from when the send actually ran.
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;            // 32
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(index(nanos));
+        total.increment();
+        sum.add(nanos);
+
+        long m;
+        while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos)) { }
+    }
+
+    // Also records the samples a stalled closed-loop sender missed:
+    // nanos - interval, nanos - 2*interval, ... down to interval
+    public void recordWithExpectedInterval(long nanos, long expectedIntervalNanos) {
+        record(nanos);
+        if (expectedIntervalNanos <= 0) return;
+
+        for (long missing = nanos - expectedIntervalNanos; missing >= expectedIntervalNanos;
+             missing -= expectedIntervalNanos) {
+            record(missing);
+        }
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    // Upper bound of the bucket holding the given percentile (0..100)
+    public long percentile(double p) {
+        long n = total.sum();
+        if (n == 0) return 0;
+
+        long target = Math.max(1, (long) Math.ceil(n * p / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) return Math.min(highestEquivalent(i), max.get());
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    // "n=1234 mean=0.38ms p50=0.41ms p99=2.10ms p999=7.80ms max=9.02ms"
+    public String summary() {
+        return summary(TimeUnit.MILLISECONDS);
+    }
+
+    // Same, in the given unit (ms or us are the useful ones)
+    public String summary(TimeUnit unit) {
+        double div = unit.toNanos(1);
+        String u = unit == TimeUnit.NANOSECONDS ? "ns"
+                : unit == TimeUnit.MICROSECONDS ? "us"
+                : unit == TimeUnit.MILLISECONDS ? "ms" : "s";
+        return String.format("n=%d mean=%.2f%s p50=%.2f%s p99=%.2f%s p999=%.2f%s max=%.2f%s",
+                count(), mean() / div, u,
+                percentile(50) / div, u, percentile(99) / div, u,
+                percentile(99.9) / div, u, max() / div, u);
+    }
+
+    // Values below 32 map 1:1; above that, exponent selects the row and the
+    // next 5 bits below the leading one select the column
+    private static int index(long v) {
+        if (v < SUB_COUNT) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) ((v >>> (exp - SUB_BITS)) & (SUB_COUNT - 1));
+        return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    private static long lowestEquivalent(int index) {
+        if (index < SUB_COUNT) return index;
+        int exp = index / SUB_COUNT + SUB_BITS - 1;
+        long sub = index % SUB_COUNT;
+        return (SUB_COUNT + sub) << (exp - SUB_BITS);
+    }
+
+    private static long highestEquivalent(int index) {
+        return index + 1 < BUCKETS ? lowestEquivalent(index + 1) - 1 : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,385 @@
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Headless load test for ChatServer. Opens many simulated clients in one JVM
+// (one ChatConnection each), all speaking the real protocol: the username
+// handshake, /move with sequence numbers, /ttt retry, chat, /typing, /pm and
+// file uploads. The first two bots get the X/O seats and play each other
+// forever; everyone else is a spectator who chats.
+//
+// Every chat/typing/pm/file action is scheduled open-loop (Poisson arrivals at
+// the configured rate, never waiting for replies) and latency is measured from
+// the *intended* send time, so a stalled server shows up in the numbers
+// instead of silently slowing the generator down. Moves are closed-loop by
+// nature (a player waits for the board), so they use the histogram's
+// expected-interval correction on top.
+//
+//   javac -encoding UTF-8 -d bin *.java
+//   java -cp bin ChatServer &
+//   java -cp bin -Dload.clients=2000 -Dload.duration=60 LoadGenerator
+//
+// Thousands of clients need a matching open-files limit (ulimit -n) for both
+// the server and the generator.
+//
+// Settings (system properties):
+//   load.host / load.port      server address (localhost:5555)
+//   load.clients               simulated clients (1000)
+//   load.connectRate           new connections per second (500)
+//   load.duration              seconds to run after the last connect (30)
+//   load.thinkMs               mean player think time before a move/retry (200)
+//   load.actionMs              mean time between chat actions per client (5000)
+//   load.mix                   weights, e.g. chat=60,typing=30,pm=5,file=5
+//   load.fileBytes             upload size (1024)
+//   load.threads               scheduler threads (CPU count)
+public class LoadGenerator {
+
+    private static final String HOST = System.getProperty("load.host", "localhost");
+    private static final int PORT = Integer.getInteger("load.port", ChatConnection.DEFAULT_PORT);
+    private static final int CLIENTS = Integer.getInteger("load.clients", 1000);
+    private static final int CONNECT_RATE = Integer.getInteger("load.connectRate", 500);
+    private static final int DURATION_S = Integer.getInteger("load.duration", 30);
+    private static final long THINK_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("load.thinkMs", 200));
+    private static final long ACTION_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("load.actionMs", 5000));
+    private static final int FILE_BYTES = Integer.getInteger("load.fileBytes", 1024);
+    private static final int THREADS = Integer.getInteger("load.threads", Runtime.getRuntime().availableProcessors());
+
+    private enum Action { CHAT, TYPING, PM, FILE }
+
+    private static final int[] MIX = parseMix(System.getProperty("load.mix", "chat=60,typing=30,pm=5,file=5"));
+    private static final int MIX_TOTAL = MIX[0] + MIX[1] + MIX[2] + MIX[3];
+
+    // -------------------- RESULTS --------------------
+    private static final LatencyHistogram CONNECT = new LatencyHistogram();
+    private static final LatencyHistogram MOVE_TO_BOARD = new LatencyHistogram();       // mover's own [GAMEBOARD]
+    private static final LatencyHistogram MOVE_TO_SPECTATOR = new LatencyHistogram();   // spectators' [GAMEMOVE]
+    private static final LatencyHistogram CHAT_ECHO = new LatencyHistogram();           // own broadcast coming back
+
+    private static final LongAdder sent = new LongAdder();
+    private static final LongAdder received = new LongAdder();
+    private static final LongAdder moves = new LongAdder();
+    private static final LongAdder moveRejects = new LongAdder();
+    private static final LongAdder games = new LongAdder();
+    private static final LongAdder connectFailures = new LongAdder();
+    private static final LongAdder disconnects = new LongAdder();
+    private static final AtomicInteger connected = new AtomicInteger();
+
+    // Intended send time of the move in each cell, so spectators can time it too
+    private static final AtomicLongArray moveIntendedAt = new AtomicLongArray(9);
+
+    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(THREADS, r -> {
+        Thread t = new Thread(r, "load-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final List<SimClient> bots = new CopyOnWriteArrayList<>();
+    private static volatile boolean stopping = false;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("[LOAD] " + CLIENTS + " clients -> " + HOST + ":" + PORT
+                + ", connect " + CONNECT_RATE + "/s, run " + DURATION_S + "s, mix chat/typing/pm/file="
+                + MIX[0] + "/" + MIX[1] + "/" + MIX[2] + "/" + MIX[3]);
+
+        ScheduledFuture<?> reporter = scheduler.scheduleAtFixedRate(new Reporter(), 1, 1, TimeUnit.SECONDS);
+
+        // Paced ramp-up; connect latency is measured from each slot's intended start
+        long start = System.nanoTime();
+        long slot = TimeUnit.SECONDS.toNanos(1) / Math.max(1, CONNECT_RATE);
+        for (int i = 0; i < CLIENTS; i++) {
+            long intended = start + i * slot;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+
+            try {
+                SimClient bot = new SimClient(ChatConnection.open(HOST, PORT, "bot" + i));
+                CONNECT.record(System.nanoTime() - intended);
+                bots.add(bot);
+                connected.incrementAndGet();
+                bot.start();
+            } catch (Exception e) {
+                connectFailures.increment();
+            }
+        }
+
+        System.out.println("[LOAD] Ramp-up done in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        TimeUnit.SECONDS.sleep(DURATION_S);
+
+        stopping = true;
+        reporter.cancel(false);
+        scheduler.shutdownNow();
+        for (SimClient bot : bots) bot.conn.close();
+
+        long lostChats = 0;
+        for (SimClient bot : bots) lostChats += bot.chatsInFlight.size();
+
+        System.out.println("[LOAD] ----------------------------------------------------------");
+        System.out.println("[LOAD] connected=" + bots.size() + " failed=" + connectFailures.sum()
+                + " dropped=" + disconnects.sum());
+        System.out.println("[LOAD] sent=" + sent.sum() + " received=" + received.sum()
+                + " moves=" + moves.sum() + " rejects=" + moveRejects.sum() + " games=" + games.sum()
+                + " chats without echo=" + lostChats);
+        System.out.println("[LOAD] connect            " + CONNECT.summary());
+        System.out.println("[LOAD] move -> board      " + MOVE_TO_BOARD.summary());
+        System.out.println("[LOAD] move -> spectator  " + MOVE_TO_SPECTATOR.summary());
+        System.out.println("[LOAD] chat -> echo       " + CHAT_ECHO.summary());
+    }
+
+    // "chat=60,typing=30,pm=5,file=5" -> weights in Action order
+    private static int[] parseMix(String spec) {
+        int[] w = new int[Action.values().length];
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length == 2) w[Action.valueOf(kv[0].trim().toUpperCase()).ordinal()] = Integer.parseInt(kv[1].trim());
+        }
+        return w;
+    }
+
+    // Exponential inter-arrival time with the given mean (Poisson process)
+    private static long nextInterval(long meanNanos) {
+        return (long) (-meanNanos * Math.log(1.0 - ThreadLocalRandom.current().nextDouble()));
+    }
+
+    // Once a second: progress line with per-second rates
+    private static final class Reporter implements Runnable {
+        private long lastSent, lastReceived, lastMoves;
+        private int seconds;
+
+        @Override
+        public void run() {
+            long s = sent.sum(), r = received.sum(), m = moves.sum();
+            System.out.println("[LOAD] t=" + (++seconds) + "s connected=" + connected.get()
+                    + " sent/s=" + (s - lastSent) + " recv/s=" + (r - lastReceived)
+                    + " moves/s=" + (m - lastMoves)
+                    + " move p99=" + String.format("%.2fms", MOVE_TO_BOARD.percentile(99) / 1e6)
+                    + " chat p99=" + String.format("%.2fms", CHAT_ECHO.percentile(99) / 1e6));
+            lastSent = s;
+            lastReceived = r;
+            lastMoves = m;
+        }
+    }
+
+    // ======================== ONE SIMULATED CLIENT ========================
+    private static final class SimClient implements ChatListener {
+
+        final String name;
+        final ChatConnection conn;
+        final String echoPrefix;
+
+        // Chat seq -> intended send time, removed when our own line comes back
+        final Map<Long, Long> chatsInFlight = new ConcurrentHashMap<>();
+        long chatSeq = 0;                 // scheduler thread only (one action chain per bot)
+
+        // Game state; reader thread + scheduler thread, guarded by this
+        private final char[][] board = new char[3][3];
+        private char symbol = ' ';
+        private long moveSeq = 0;
+        private long pendingMoveAt = -1;  // intended send time of our in-flight move
+        private int pendingRow, pendingCol;
+        private boolean turnScheduled = false;
+
+        SimClient(ChatConnection conn) {
+            this.name = conn.getUsername();
+            this.conn = conn;
+            this.echoPrefix = name + ": lg ";
+            for (char[] row : board) java.util.Arrays.fill(row, ' ');
+        }
+
+        void start() {
+            conn.setDownloadDir(null);   // count uploads, don't write them to disk
+            conn.setListener(this);
+            conn.start();
+
+            if (MIX_TOTAL > 0) {
+                long first = System.nanoTime() + nextInterval(ACTION_NANOS);
+                scheduleAction(first);
+            }
+        }
+
+        // -------------------- OPEN-LOOP ACTIONS --------------------
+
+        private void scheduleAction(long intended) {
+            if (stopping) return;
+            try {
+                scheduler.schedule(() -> act(intended),
+                        intended - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException ignored) {
+                // shutting down
+            }
+        }
+
+        private void act(long intended) {
+            // Next arrival is fixed relative to this one's intended time, not to
+            // when we actually got here, so a slow run can't thin out the load
+            scheduleAction(intended + nextInterval(ACTION_NANOS));
+
+            int pick = ThreadLocalRandom.current().nextInt(MIX_TOTAL);
+            Action action = Action.CHAT;
+            for (Action a : Action.values()) {
+                if (pick < MIX[a.ordinal()]) { action = a; break; }
+                pick -= MIX[a.ordinal()];
+            }
+
+            try {
+                switch (action) {
+                    case CHAT:
+                        long seq = ++chatSeq;
+                        chatsInFlight.put(seq, intended);
+                        conn.sendChat("lg " + seq);
+                        break;
+                    case TYPING:
+                        conn.sendTyping();
+                        break;
+                    case PM:
+                        conn.sendPrivate(randomPeer(), "lg pm");
+                        break;
+                    case FILE:
+                        conn.sendFile(randomPeer(), "lg.bin", new byte[FILE_BYTES]);
+                        break;
+                }
+                sent.increment();
+            } catch (Exception e) {
+                // connection gone; onDisconnected accounts for it
+            }
+        }
+
+        private String randomPeer() {
+            int n = bots.size();
+            if (n <= 1) return name;
+            SimClient peer = bots.get(ThreadLocalRandom.current().nextInt(n));
+            return peer == this ? bots.get((bots.indexOf(this) + 1) % n).name : peer.name;
+        }
+
+        // -------------------- GAME --------------------
+
+        // Reader thread: if it's our turn, play a random free cell after a think time
+        private synchronized void maybePlay() {
+            if (symbol == ' ' || turnScheduled || pendingMoveAt >= 0) return;
+            if (TicTacToeRules.isGameOver(board) || TicTacToeRules.sideToMove(board) != symbol) return;
+
+            turnScheduled = true;
+            long intended = System.nanoTime() + nextInterval(THINK_NANOS);
+            try {
+                scheduler.schedule(() -> play(intended), intended - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException ignored) {}
+        }
+
+        private synchronized void play(long intended) {
+            turnScheduled = false;
+            if (TicTacToeRules.isGameOver(board) || TicTacToeRules.sideToMove(board) != symbol) return;
+
+            int[] free = new int[9];
+            int n = 0;
+            for (int i = 0; i < 9; i++) {
+                if (board[i / 3][i % 3] == ' ') free[n++] = i;
+            }
+            if (n == 0) return;
+
+            int cell = free[ThreadLocalRandom.current().nextInt(n)];
+            pendingRow = cell / 3;
+            pendingCol = cell % 3;
+            pendingMoveAt = intended;
+            moveIntendedAt.set(cell, intended);
+
+            conn.sendMove(pendingRow, pendingCol, ++moveSeq);
+            sent.increment();
+        }
+
+        @Override
+        public void onRole(char s) {
+            received.increment();
+            synchronized (this) {
+                symbol = s;
+            }
+            maybePlay();
+        }
+
+        @Override
+        public void onBoard(char[] cells) {
+            long now = System.nanoTime();
+            received.increment();
+
+            synchronized (this) {
+                for (int i = 0; i < 9; i++) board[i / 3][i % 3] = cells[i];
+
+                if (pendingMoveAt >= 0 && board[pendingRow][pendingCol] == symbol) {
+                    MOVE_TO_BOARD.recordWithExpectedInterval(now - pendingMoveAt, THINK_NANOS);
+                    moves.increment();
+                    pendingMoveAt = -1;
+                }
+            }
+            maybePlay();
+        }
+
+        @Override
+        public void onCell(int row, int col, char s) {
+            long now = System.nanoTime();
+            received.increment();
+
+            long intended = moveIntendedAt.get(row * 3 + col);
+            if (s != ' ' && intended != 0) MOVE_TO_SPECTATOR.record(now - intended);
+        }
+
+        @Override
+        public void onMoveAck(long seq) {
+            received.increment();
+        }
+
+        @Override
+        public void onMoveReject(long seq) {
+            received.increment();
+            moveRejects.increment();
+            synchronized (this) {
+                pendingMoveAt = -1;
+            }
+            maybePlay();
+        }
+
+        @Override
+        public void onGameOver(String result) {
+            received.increment();
+            char s;
+            synchronized (this) {
+                s = symbol;
+            }
+            if (s == ' ') return;
+            if (s == 'X') games.increment();   // count each game once
+
+            long delay = nextInterval(THINK_NANOS);
+            try {
+                scheduler.schedule(() -> {
+                    conn.sendRetry();
+                    sent.increment();
+                }, delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException ignored) {}
+        }
+
+        @Override
+        public void onMessage(String line) {
+            long now = System.nanoTime();
+            received.increment();
+
+            if (line.startsWith(echoPrefix)) {
+                try {
+                    Long intended = chatsInFlight.remove(Long.parseLong(line.substring(echoPrefix.length())));
+                    if (intended != null) CHAT_ECHO.record(now - intended);
+                } catch (NumberFormatException ignored) {}
+            }
+        }
+
+        @Override public void onTyping(String[] names) { received.increment(); }
+        @Override public void onPresenceSnapshot(long version, String[] names) { received.increment(); }
+        @Override public void onPresenceDelta(long version, String[] joined, String[] left) { received.increment(); }
+        @Override public void onClock(long xMillis, long oMillis, char running) { received.increment(); }
+        @Override public void onFileReceived(String sender, String name, java.io.File savedTo) { received.increment(); }
+
+        @Override
+        public void onDisconnected() {
+            connected.decrementAndGet();
+            if (!stopping) disconnects.increment();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+// Client-side move prediction. Keeps the last authoritative board from the
+// server plus at most one pending move of our own. A click that the shared
+// TicTacToeRules accept is shown right away as tentative and sent with a
+// sequence number. The server answers [MOVE_ACK] <seq> (keep it) or
+// [MOVE_REJECT] <seq> (roll it back). The server stays the only authority:
+// every [GAMEBOARD] overwrites our view. EDT only.
+public class MovePredictor {
+
+    private final char[][] confirmed = new char[3][3];
+    private char mySymbol = ' ';          // 'X', 'O', or ' ' for spectators / unknown
+
+    private long nextSeq = 1;
+    private long pendingSeq = -1;
+    private int pendingRow = -1, pendingCol = -1;
+
+    public MovePredictor() {
+        for (char[] row : confirmed) java.util.Arrays.fill(row, ' ');
+    }
+
+    public void setSymbol(char symbol) {
+        mySymbol = symbol;
+    }
+
+    // Returns the sequence number to send, or -1 if the move can't be predicted
+    // (not our turn, cell taken, game over, a move already in flight, ...)
+    public long predict(int r, int c) {
+        if (pendingSeq >= 0 || mySymbol == ' ') return -1;
+        if (!TicTacToeRules.isLegalMove(confirmed, mySymbol, r, c)) return -1;
+
+        pendingSeq = nextSeq++;
+        pendingRow = r;
+        pendingCol = c;
+        return pendingSeq;
+    }
+
+    public char getSymbol() {
+        return mySymbol;
+    }
+
+    public boolean isPending(int r, int c) {
+        return pendingSeq >= 0 && r == pendingRow && c == pendingCol;
+    }
+
+    // Authoritative cell from the server
+    public void onCell(int r, int c, char val) {
+        confirmed[r][c] = val;
+    }
+
+    public void onAck(long seq) {
+        if (seq == pendingSeq) clearPending();
+    }
+
+    // Returns true if our pending move was rejected and must be rolled back
+    public boolean onReject(long seq) {
+        if (seq != pendingSeq) return false;
+        clearPending();
+        return true;
+    }
+
+    public int getPendingRow() {
+        return pendingRow;
+    }
+
+    public int getPendingCol() {
+        return pendingCol;
+    }
+
+    public char confirmedCell(int r, int c) {
+        return confirmed[r][c];
+    }
+
+    private void clearPending() {
+        pendingSeq = -1;
+    }
+}
@@ -0,0 +1,125 @@
+import java.awt.*;
+
+// Allocation-free particle system. Particle state lives in parallel
+// float[] arrays (struct-of-arrays) sized once up front; nothing is
+// allocated per frame. Particles are laid out in contiguous color buckets,
+// so painting sets each color once and then fills that bucket's range.
+// step() also tracks the bounding box the particles touched so callers can
+// repaint just that region.
+public class ParticleSystem {
+
+    private final int capacity;
+    private final float[] x, y, vy, size;
+    private final Color[] palette;
+    private final int[] bucketStart;      // bucket b = [bucketStart[b], bucketStart[b+1])
+
+    private int count = 0;
+    private int seed = 0x9E3779B9;        // xorshift state (no Math.random per respawn)
+
+    // Region touched by the last step (old + new positions)
+    private final Rectangle dirty = new Rectangle();
+    private final Rectangle clip = new Rectangle();   // paint scratch
+
+    public ParticleSystem(int capacity, Color[] palette) {
+        this.capacity = capacity;
+        this.x = new float[capacity];
+        this.y = new float[capacity];
+        this.vy = new float[capacity];
+        this.size = new float[capacity];
+        this.palette = palette;
+
+        this.bucketStart = new int[palette.length + 1];
+        for (int b = 0; b <= palette.length; b++) {
+            bucketStart[b] = (int) ((long) capacity * b / palette.length);
+        }
+    }
+
+    public boolean isActive() {
+        return count > 0;
+    }
+
+    // Falling confetti spread across width, starting above the top edge.
+    // Speeds are in pixels per second.
+    public void spawnConfetti(int width, int height) {
+        for (int i = 0; i < capacity; i++) {
+            x[i] = nextFloat() * width;
+            y[i] = nextFloat() * -height;
+            vy[i] = 50f + nextFloat() * 75f;
+            size[i] = 4f + nextFloat() * 6f;
+        }
+        count = capacity;
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    // Advance by dt seconds; particles that fall off the bottom respawn on top
+    public void step(float dt, int width, int height) {
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+
+        for (int i = 0; i < count; i++) {
+            float oldY = y[i];
+            float ny = oldY + vy[i] * dt;
+            if (ny > height) {
+                ny = -size[i];
+                x[i] = nextFloat() * width;
+                oldY = ny;      // the old spot (off the bottom) needs no repaint
+            }
+            y[i] = ny;
+
+            float s = size[i];
+            if (oldY + s >= 0 || ny + s >= 0) {
+                minX = Math.min(minX, x[i]);
+                maxX = Math.max(maxX, x[i] + s);
+                minY = Math.min(minY, Math.min(oldY, ny));
+                maxY = Math.max(maxY, Math.max(oldY, ny) + s);
+            }
+        }
+
+        if (minX > maxX) {
+            dirty.setBounds(0, 0, 0, 0);
+        } else {
+            int top = Math.max(0, (int) minY - 1);
+            dirty.setBounds((int) minX - 1, top, (int) (maxX - minX) + 3, (int) maxY + 2 - top);
+        }
+    }
+
+    public Rectangle getDirtyRegion() {
+        return dirty;
+    }
+
+    // One setColor per bucket, then a run of fills
+    public void paint(Graphics2D g2) {
+        clip.setBounds(0, 0, -1, -1);      // left as is when there's no clip
+        g2.getClipBounds(clip);
+        boolean clipped = clip.width >= 0;
+        for (int b = 0; b < palette.length; b++) {
+            int end = Math.min(bucketStart[b + 1], count);
+            if (bucketStart[b] >= end) continue;
+
+            g2.setColor(palette[b]);
+            for (int i = bucketStart[b]; i < end; i++) {
+                int s = (int) size[i];
+                int px = (int) x[i];
+                int py = (int) y[i];
+                if (clipped && (py + s < clip.y || py > clip.y + clip.height
+                        || px + s < clip.x || px > clip.x + clip.width)) {
+                    continue;
+                }
+                g2.fillOval(px, py, s, s);
+            }
+        }
+    }
+
+    // xorshift32 → [0, 1)
+    private float nextFloat() {
+        int s = seed;
+        s ^= s << 13;
+        s ^= s >>> 17;
+        s ^= s << 5;
+        seed = s;
+        return (s >>> 8) * (1f / (1 << 24));
+    }
+}
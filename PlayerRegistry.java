@@ -0,0 +1,183 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// ===============================================
+//        PLAYER IDS (one persistent registry)
+// ===============================================
+// A player's ID is assigned the first time one of their games is rated or
+// archived and never changes. Ratings (record number in ratings.dat) and
+// replays (the X / O fields of every archived game) both use it, so one
+// number means one player everywhere. Session IDs are a different thing:
+// they are per connection and reused.
+//
+// File: magic "TTTP", version, then one entry per player in ID order, each
+// a length-prefixed UTF-8 name (DataOutput.writeUTF). Nothing inside a
+// name can shift the IDs after it. A torn last entry is cut off on load.
+//
+// On first start, the replay archive's old name table (replays/players.txt,
+// line number = ID) is imported in order so archived games keep their names.
+//
+// Thread-safe; called from the ratings and replays threads.
+//
+// Settings: -Dplayers.file=players.dat
+final class PlayerRegistry {
+
+    public static final int NONE = -1;
+
+    private static final int MAGIC = 0x54545450;   // "TTTP"
+    private static final int VERSION = 1;
+    private static final int HEADER = 8;
+
+    private final File file;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private DataOutputStream out;
+    private boolean disabled = false;   // file exists but isn't ours: never write to it
+
+    PlayerRegistry() {
+        this(new File(System.getProperty("players.file", "players.dat")),
+                new File(System.getProperty("replay.dir", "replays"), "players.txt"));
+    }
+
+    PlayerRegistry(File file, File legacyNames) {
+        this.file = file;
+        if (file.exists()) {
+            load();
+        } else if (legacyNames != null && legacyNames.exists()) {
+            importLegacy(legacyNames);
+        }
+    }
+
+    // Existing ID, or the next one (written to disk first); NONE if it can't be stored
+    public synchronized int idOf(String name) {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+        if (disabled) return NONE;
+
+        try {
+            if (out == null) {
+                boolean fresh = !file.exists() || file.length() == 0;
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+                if (fresh) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                }
+            }
+            out.writeUTF(name);
+            out.flush();
+        } catch (IOException e) {
+            AsyncLog.error("[PLAYERS] Cannot write {}: {}", file, e.getMessage());
+            return NONE;
+        }
+
+        int newId = names.size();
+        names.add(name);
+        ids.put(name, newId);
+        return newId;
+    }
+
+    // ID of a known player, NONE if they never got one
+    public synchronized int find(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : NONE;
+    }
+
+    // Name for an ID; null if unknown
+    public synchronized String nameOf(int id) {
+        return id >= 0 && id < names.size() ? names.get(id) : null;
+    }
+
+    public synchronized int size() {
+        return names.size();
+    }
+
+    // -------------------- FILE --------------------
+
+    private void load() {
+        if (file.length() < HEADER) {   // crashed while creating it: start over
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(0);
+            } catch (IOException e) {
+                AsyncLog.error("[PLAYERS] Cannot repair {}: {}", file, e.getMessage());
+                disabled = true;
+            }
+            return;
+        }
+
+        long valid = HEADER;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                AsyncLog.error("[PLAYERS] {} is not a player file; new players won't be saved.", file);
+                disabled = true;
+                return;
+            }
+            while (true) {
+                String name = in.readUTF();
+                ids.putIfAbsent(name, names.size());
+                names.add(name);
+                valid += 2 + utfLength(name);
+            }
+        } catch (EOFException e) {
+            // end of file, or a torn last entry
+        } catch (IOException e) {
+            AsyncLog.error("[PLAYERS] Cannot read {}: {}", file, e.getMessage());
+            disabled = true;
+            return;
+        }
+
+        if (file.length() > valid) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(valid);
+            } catch (IOException e) {
+                AsyncLog.error("[PLAYERS] Cannot repair {}: {}", file, e.getMessage());
+                disabled = true;
+                return;
+            }
+        }
+        AsyncLog.info("[PLAYERS] Loaded {} players from {}", names.size(), file);
+    }
+
+    // players.txt: one name per line, '\n' only
+    private void importLegacy(File legacy) {
+        try {
+            String all = new String(Files.readAllBytes(legacy.toPath()), StandardCharsets.UTF_8);
+            int from = 0;
+            for (int nl; (nl = all.indexOf('\n', from)) >= 0; from = nl + 1) {
+                String name = all.substring(from, nl);
+                if (ids.containsKey(name)) {
+                    names.add(name);   // duplicate line: still takes an ID, so later ones stay put
+                    out.writeUTF(name);
+                } else if (idOf(name) == NONE) {
+                    return;
+                }
+            }
+            if (out != null) out.flush();
+            AsyncLog.info("[PLAYERS] Imported {} players from {}", names.size(), legacy);
+        } catch (IOException e) {
+            AsyncLog.error("[PLAYERS] Cannot import {}: {}", legacy, e.getMessage());
+        }
+    }
+
+    private static int utfLength(String s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            n += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        return n;
+    }
+}
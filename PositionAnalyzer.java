@@ -0,0 +1,182 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// ===============================================
+//        LIVE POSITION ANALYSIS (spectators)
+// ===============================================
+// After each accepted move the game hands a copy of the board to one
+// low-priority "analysis" thread and returns; analysis never runs under the
+// game lock. The result goes to spectators only (players don't get hints),
+// queued on the spectator fan-out behind the move it describes:
+//
+//   [ANALYSIS] <marks> <X|O|D> <plies> <r,c;r,c...|->
+//
+// marks = marks on the analysed board (clients drop a result that doesn't
+// match what they show), X/O/D = who wins with perfect play, plies = moves
+// left until that happens, then the best cells for the side to move (0-based).
+//
+// Results are cached by canonical position: the smallest base-3 code over
+// the board's 8 rotations/reflections, so mirror-image openings share one
+// entry. The cache is an access-ordered LRU owned by the analysis thread
+// (no locking). A request that is already stale when its turn comes
+// (another move landed) is skipped; when nobody is watching, nothing is
+// submitted. The queue is bounded and a full queue drops the request.
+//
+// Settings: -Danalysis.cache=4096 entries, -Danalysis.queue=1024 requests
+final class PositionAnalyzer {
+
+    private static final int CAPACITY = Math.max(16, Integer.getInteger("analysis.cache", 4096));
+    private static final int QUEUE = Math.max(1, Integer.getInteger("analysis.queue", 1024));
+    private static final int[] POW3 = { 1, 3, 9, 27, 81, 243, 729, 2187, 6561 };
+
+    // SYM[t][i] = cell of the real board that lands on cell i under symmetry t
+    private static final int[][] SYM = new int[8][9];
+
+    static {
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 3; c++) {
+                int i = r * 3 + c;
+                SYM[0][i] = r * 3 + c;                 // identity
+                SYM[1][i] = (2 - c) * 3 + r;           // rotate 90
+                SYM[2][i] = (2 - r) * 3 + (2 - c);     // rotate 180
+                SYM[3][i] = c * 3 + (2 - r);           // rotate 270
+                SYM[4][i] = r * 3 + (2 - c);           // mirror left-right
+                SYM[5][i] = (2 - r) * 3 + c;           // mirror top-bottom
+                SYM[6][i] = c * 3 + r;                 // main diagonal
+                SYM[7][i] = (2 - c) * 3 + (2 - r);     // anti-diagonal
+            }
+        }
+    }
+
+    // Cached verdict in canonical orientation
+    private static final class Result {
+        final char outcome;   // X, O or D
+        final int plies;
+        final int bestMask;   // bit i = canonical cell i is a best move
+
+        Result(char outcome, int plies, int bestMask) {
+            this.outcome = outcome;
+            this.plies = plies;
+            this.bestMask = bestMask;
+        }
+    }
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile int size = 0;
+
+    private final ExecutorService worker = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE), r -> {
+                Thread t = new Thread(r, "analysis");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }, (task, pool) -> dropped.increment());
+
+    private final Map<Integer, Result> cache = new LinkedHashMap<Integer, Result>(CAPACITY * 4 / 3 + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Result> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    // Called under the game lock: copy the board and hand it off.
+    // `version` is compared with game.positionVersion() before analysing.
+    public void submit(TicTacToeGame game, char[][] board, int version) {
+        if (ChatServer.spectatorFanout.size() == 0) return;
+
+        char[] cells = new char[9];
+        for (int i = 0; i < 9; i++) cells[i] = board[i / 3][i % 3];
+
+        worker.execute(() -> {
+            try {
+                if (game.positionVersion() != version) {
+                    stale.increment();
+                    return;
+                }
+                ChatServer.spectatorFanout.publish(analyse(cells));
+            } catch (Exception e) {
+                AsyncLog.error("[ANALYSIS] {}", e.toString());
+            }
+        });
+    }
+
+    // -------------------- ANALYSIS THREAD --------------------
+
+    private String analyse(char[] cells) {
+        // Canonical orientation = symmetry giving the smallest code
+        int bestSym = 0;
+        int canonical = Integer.MAX_VALUE;
+        for (int t = 0; t < 8; t++) {
+            int code = 0;
+            for (int i = 0; i < 9; i++) code += digit(cells[SYM[t][i]]) * POW3[i];
+            if (code < canonical) {
+                canonical = code;
+                bestSym = t;
+            }
+        }
+
+        Result result = cache.get(canonical);
+        if (result != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            result = solve(cells, SYM[bestSym]);
+            cache.put(canonical, result);
+            size = cache.size();
+        }
+
+        int marks = 0;
+        for (char ch : cells) if (ch != ' ') marks++;
+
+        StringBuilder sb = new StringBuilder("[ANALYSIS] ");
+        sb.append(marks).append(' ').append(result.outcome).append(' ').append(result.plies).append(' ');
+        int best = 0;   // canonical cell → cell on the real board
+        for (int i = 0; i < 9; i++) {
+            if ((result.bestMask & (1 << i)) != 0) best |= 1 << SYM[bestSym][i];
+        }
+        if (best == 0) {
+            sb.append('-');
+        } else {
+            boolean first = true;
+            for (int i = 0; i < 9; i++) {
+                if ((best & (1 << i)) == 0) continue;
+                if (!first) sb.append(';');
+                sb.append(i / 3).append(',').append(i % 3);
+                first = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    // Solve the position in canonical orientation
+    private static Result solve(char[] cells, int[] sym) {
+        char[][] board = new char[3][3];
+        for (int i = 0; i < 9; i++) board[i / 3][i % 3] = cells[sym[i]];
+
+        int outcome = TicTacToeSolver.outcome(board);
+        int mask = 0;
+        for (int cell : TicTacToeSolver.bestMoves(board)) mask |= 1 << cell;
+        return new Result(outcome == TicTacToeSolver.X_WINS ? 'X' : outcome == TicTacToeSolver.O_WINS ? 'O' : 'D',
+                TicTacToeSolver.pliesToEnd(board), mask);
+    }
+
+    private static int digit(char ch) {
+        return ch == 'X' ? 1 : ch == 'O' ? 2 : 0;
+    }
+
+    // -------------------- STATS --------------------
+
+    public long hitCount() { return hits.sum(); }
+    public long missCount() { return misses.sum(); }
+    public long staleCount() { return stale.sum(); }
+    public long droppedCount() { return dropped.sum(); }
+    public int cacheSize() { return size; }
+}
@@ -0,0 +1,85 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// ===============================================
+//        PRESENCE (versioned user list)
+// ===============================================
+// Protocol:
+//   PRESENCE|SNAPSHOT|<version>|alice,bob,...       sent once on join / resync
+//   PRESENCE|DELTA|<version>|JOIN:carol,LEAVE:bob   one per coalescing window
+//
+// Each delta moves the version forward by exactly one, so a client applies a
+// delta only when it is local+1 and asks for a fresh snapshot (/users) on a gap.
+// Joins and leaves inside one window are merged, and a join+leave of the same
+// name cancels out, so churn costs one short line per window instead of a full
+// list per event.
+class PresenceService {
+
+    private static final long COALESCE_MILLIS = Long.getLong("presence.coalesce.ms", 100);
+
+    private final Set<String> published = new LinkedHashSet<>();          // state as of `version`
+    private final Map<String, Boolean> pending = new LinkedHashMap<>();   // name → joined?
+    private long version = 0;
+    private boolean flushScheduled = false;
+
+    public synchronized void join(String username) {
+        if (pending.remove(username) != null) return;   // left and came back within the window
+        pending.put(username, Boolean.TRUE);
+        scheduleFlush();
+    }
+
+    public synchronized void leave(String username) {
+        if (pending.remove(username) != null) return;   // joined and left within the window
+        pending.put(username, Boolean.FALSE);
+        scheduleFlush();
+    }
+
+    // Full list at the current version. Sent under the lock so no delta
+    // can be generated between building it and queueing it.
+    public synchronized void sendSnapshot(ClientHandler handler, boolean spectator) {
+        StringBuilder sb = new StringBuilder("PRESENCE|SNAPSHOT|").append(version).append("|");
+        Iterator<String> it = published.iterator();
+        while (it.hasNext()) {
+            sb.append(it.next());
+            if (it.hasNext()) sb.append(",");
+        }
+
+        if (spectator) {
+            ChatServer.spectatorFanout.sendTo(handler, sb.toString());
+        } else {
+            handler.send(sb.toString());
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled) return;
+        flushScheduled = true;
+        ServerScheduler.schedule(this::flush, COALESCE_MILLIS);
+    }
+
+    private synchronized void flush() {
+        flushScheduled = false;
+        if (pending.isEmpty()) return;
+
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Boolean> e : pending.entrySet()) {
+            if (sb.length() > 0) sb.append(",");
+            if (e.getValue()) {
+                published.add(e.getKey());
+                sb.append("JOIN:").append(e.getKey());
+            } else {
+                published.remove(e.getKey());
+                sb.append("LEAVE:").append(e.getKey());
+            }
+        }
+        pending.clear();
+        version++;
+
+        // Stays under the lock so no snapshot can slip between this version and
+        // its delta; broadcast only enqueues, so the timer thread never blocks here
+        ChatServer.broadcast("PRESENCE|DELTA|" + version + "|" + sb);
+    }
+}
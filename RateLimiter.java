@@ -0,0 +1,163 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// ===============================================
+//        PER-CONNECTION FLOOD CONTROL
+// ===============================================
+// One token bucket per message class plus one for the whole connection.
+// Buckets use GCRA (a token bucket expressed as a "theoretical arrival
+// time"), so each bucket is a single long updated with CAS: no locks and
+// no allocation per message.
+//
+// Limits are "<per second>/<burst>", overridable per class with e.g.
+//   -Dratelimit.chat=5/10   -Dratelimit.connection=30/60
+//
+// Chat-like classes are dropped when over the limit. Moves and file
+// headers are delayed instead (a file header can't be dropped without
+// desyncing the raw bytes that follow it).
+class RateLimiter {
+
+    enum MessageClass {
+        CHAT("5/10", false),
+        PM("5/10", false),
+        MOVE("10/5", true),
+        TYPING("2/3", false),
+        FILE("1/3", true),
+        CONTROL("5/10", false);
+
+        final long intervalNanos;    // time to earn one token
+        final long burstNanos;       // how far ahead of "now" the bucket may run
+        final boolean delay;         // delay instead of drop when over the limit
+
+        MessageClass(String defaultLimit, boolean delay) {
+            long[] l = parseLimit(System.getProperty("ratelimit." + name().toLowerCase(), defaultLimit));
+            this.intervalNanos = l[0];
+            this.burstNanos = l[1];
+            this.delay = delay;
+        }
+
+        public static MessageClass of(String message) {
+            if (message.startsWith("FILE|")) return FILE;
+            if (message.startsWith("/typing")) return TYPING;
+            if (message.startsWith("/pm")) return PM;
+            if (message.startsWith("/say")) return CHAT;
+            if (message.startsWith("/move")) return MOVE;
+            if (message.startsWith("/")) return CONTROL;
+            return CHAT;
+        }
+
+        // "<per second>/<burst>" → {intervalNanos, burstNanos}. Lives here, not
+        // in RateLimiter, so initializing the enum never re-enters RateLimiter's
+        // static init (whose counters need MessageClass.values()).
+        static long[] parseLimit(String spec) {
+            String[] p = spec.trim().split("/");
+            double perSecond = Double.parseDouble(p[0]);
+            long burst = p.length > 1 ? Long.parseLong(p[1]) : 1;
+            long interval = (long) (1_000_000_000L / perSecond);
+            return new long[] { interval, interval * Math.max(1, burst) };
+        }
+    }
+
+    private static final long[] CONNECTION_LIMIT =
+            MessageClass.parseLimit(System.getProperty("ratelimit.connection", "30/60"));
+
+    // Repeat offenders: this many drops inside one window → disconnect
+    private static final int MAX_STRIKES = Integer.getInteger("ratelimit.strikes", 50);
+    private static final long STRIKE_WINDOW_NANOS = 10_000_000_000L;
+
+    // Server-wide counters (per class)
+    static final LongAdder[] DROPPED = newCounters();
+    static final LongAdder[] DELAYED = newCounters();
+    static final LongAdder DISCONNECTS = new LongAdder();
+
+    private static final int CONNECTION_SLOT = MessageClass.values().length;
+
+    // Theoretical arrival time per bucket (classes..., connection)
+    private final AtomicLongArray tat = new AtomicLongArray(CONNECTION_SLOT + 1);
+
+    private long strikeWindowStart = System.nanoTime();
+    private int strikes = 0;
+
+    public RateLimiter() {
+        // A TAT of "now" means every bucket starts full
+        long now = System.nanoTime();
+        for (int i = 0; i < tat.length(); i++) tat.set(i, now);
+    }
+
+    public enum Verdict { ALLOW, DROP, DISCONNECT }
+
+    // Admit one message, sleeping first if its class delays instead of drops.
+    // Called only from the connection's reader thread.
+    public Verdict admit(MessageClass type) throws InterruptedException {
+        long now = System.nanoTime();
+
+        if (type.delay) {
+            long wait = Math.max(
+                    reserve(type.ordinal(), type.intervalNanos, type.burstNanos, now),
+                    reserve(CONNECTION_SLOT, CONNECTION_LIMIT[0], CONNECTION_LIMIT[1], now));
+            if (wait > 0) {
+                DELAYED[type.ordinal()].increment();
+                Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+            }
+            return Verdict.ALLOW;
+        }
+
+        // Check both buckets before taking from either: a message the
+        // connection bucket refuses must not spend a class token too
+        if (conforms(type.ordinal(), type.intervalNanos, type.burstNanos, now)
+                && conforms(CONNECTION_SLOT, CONNECTION_LIMIT[0], CONNECTION_LIMIT[1], now)) {
+            take(type.ordinal(), type.intervalNanos, now);
+            take(CONNECTION_SLOT, CONNECTION_LIMIT[0], now);
+            return Verdict.ALLOW;
+        }
+
+        DROPPED[type.ordinal()].increment();
+
+        if (now - strikeWindowStart > STRIKE_WINDOW_NANOS) {
+            strikeWindowStart = now;
+            strikes = 0;
+        }
+        if (++strikes >= MAX_STRIKES) {
+            DISCONNECTS.increment();
+            return Verdict.DISCONNECT;
+        }
+        return Verdict.DROP;
+    }
+
+    // True for the first drop in each strike window (used to warn the client once)
+    public boolean firstStrike() {
+        return strikes == 1;
+    }
+
+    // GCRA conformance test: is a token available right now?
+    private boolean conforms(int slot, long interval, long burst, long now) {
+        long old = tat.get(slot);
+        long base = old - now > 0 ? old : now;
+        return base + interval - now <= burst;
+    }
+
+    // Take a token after conforms() said yes (single reader thread, so
+    // nothing can take it in between)
+    private void take(int slot, long interval, long now) {
+        long old = tat.get(slot);
+        tat.set(slot, (old - now > 0 ? old : now) + interval);
+    }
+
+    // Always take a token; returns how long the caller must wait for it
+    private long reserve(int slot, long interval, long burst, long now) {
+        while (true) {
+            long old = tat.get(slot);
+            long base = old - now > 0 ? old : now;
+            long next = base + interval;
+            if (tat.compareAndSet(slot, old, next)) {
+                return Math.max(0, next - now - burst);
+            }
+        }
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] a = new LongAdder[MessageClass.values().length];
+        for (int i = 0; i < a.length; i++) a[i] = new LongAdder();
+        return a;
+    }
+}
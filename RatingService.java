@@ -0,0 +1,340 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// ===============================================
+//        RATINGS (Elo + leaderboard)
+// ===============================================
+// Finished games are handed to one "ratings" thread; the game lock only
+// pays for an enqueue, so ratings add nothing to makeMove. That thread
+// owns all rating state:
+//
+//   ratings.dat  fixed-width records in a memory-mapped file. A player's
+//                record number is their PlayerRegistry ID (the one replays
+//                use too): lookup is one offset computation. Players who
+//                were never rated leave an empty (all-zero) record.
+//   leaderboard  skip list ordered by rating, updated per result; /top
+//                reads the first N entries without a lock or a scan.
+//   rank index   Fenwick tree of player counts per rating point, so a rank
+//                is "players rated above me + 1" in O(log range).
+//
+// File layout: 16-byte header (magic, version, record count, unused), then
+// 64-byte records: name (44 bytes UTF-8, zero-padded), rating (double),
+// wins, losses, draws (int). A file whose records aren't at their player's
+// ID (written before the shared registry) is rearranged once on load.
+//
+// Settings: -Drating.file=ratings.dat, -Drating.k=32, -Drating.initial=1200
+class RatingService {
+
+    private static final int MAGIC = 0x54545452;   // "TTTR"
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;
+    private static final int RECORD = 64;
+    private static final int NAME_BYTES = 44;
+    private static final int OFF_RATING = NAME_BYTES;
+    private static final int OFF_WINS = OFF_RATING + 8;
+    private static final int OFF_LOSSES = OFF_WINS + 4;
+    private static final int OFF_DRAWS = OFF_LOSSES + 4;
+
+    private static final int MAX_RATING = 4096;   // Fenwick range; ratings are clamped into it
+    private static final int MAX_TOP = 20;
+
+    private final File file = new File(System.getProperty("rating.file", "ratings.dat"));
+    private final double k = Double.parseDouble(System.getProperty("rating.k", "32"));
+    private final double initial = Double.parseDouble(System.getProperty("rating.initial", "1200"));
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ratings");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // -------- owned by the ratings thread --------
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int slots = 0;              // records in the file (highest rated ID + 1)
+    private int rated = 0;              // non-empty records
+    private boolean disabled = false;   // file exists but isn't ours: never write to it
+    private final PlayerRegistry players;
+    private final int[] fenwick = new int[MAX_RATING + 1];
+
+    // -------- read by any thread --------
+    private final ConcurrentSkipListSet<Standing> leaderboard = new ConcurrentSkipListSet<>();
+
+    // Immutable leaderboard entry; replaced (remove + add) when the rating changes
+    private static final class Standing implements Comparable<Standing> {
+        final int id;
+        final String name;
+        final double rating;
+
+        Standing(int id, String name, double rating) {
+            this.id = id;
+            this.name = name;
+            this.rating = rating;
+        }
+
+        @Override
+        public int compareTo(Standing o) {
+            int c = Double.compare(o.rating, rating);   // highest first
+            return c != 0 ? c : Integer.compare(id, o.id);
+        }
+    }
+
+    public RatingService(PlayerRegistry players) {
+        this.players = players;
+        submit(this::load);
+    }
+
+    // -------------------- GAME RESULTS (any thread, non-blocking) --------------------
+
+    public void recordWin(String winner, String loser) {
+        if (winner == null || loser == null) return;
+        submit(() -> apply(winner, loser, 1.0));
+    }
+
+    public void recordDraw(String a, String b) {
+        if (a == null || b == null) return;
+        submit(() -> apply(a, b, 0.5));
+    }
+
+    // -------------------- QUERIES --------------------
+
+    // "/rating [name]": answered from the ratings thread
+    public void sendRating(ClientHandler asker, String name) {
+        submit(() -> {
+            int id = players.find(name);
+            if (!isRated(id)) {
+                asker.send("[RATING] " + name + " unrated");
+                return;
+            }
+            int at = offset(id);
+            asker.send("[RATING] " + name + " " + Math.round(map.getDouble(at + OFF_RATING))
+                    + " rank " + rank(map.getDouble(at + OFF_RATING)) + "/" + rated
+                    + " W" + map.getInt(at + OFF_WINS)
+                    + " L" + map.getInt(at + OFF_LOSSES)
+                    + " D" + map.getInt(at + OFF_DRAWS));
+        });
+    }
+
+    // "/top [n]": first n skip-list entries, read on the caller's thread
+    public void sendTop(ClientHandler asker, int n) {
+        n = Math.max(1, Math.min(n, MAX_TOP));
+        Iterator<Standing> it = leaderboard.iterator();
+        if (!it.hasNext()) {
+            asker.send("[LEADERBOARD] No rated games yet.");
+            return;
+        }
+        for (int place = 1; place <= n && it.hasNext(); place++) {
+            Standing s = it.next();
+            asker.send("[LEADERBOARD] " + place + ". " + s.name + " " + Math.round(s.rating));
+        }
+    }
+
+    // -------------------- RATINGS THREAD --------------------
+
+    private void submit(Runnable task) {
+        worker.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                AsyncLog.error("[RATINGS] {}", e.toString());
+            }
+        });
+    }
+
+    // score: 1 = a beat b, 0.5 = draw
+    private void apply(String a, String b, double score) {
+        int ia = idFor(a);
+        int ib = idFor(b);
+        if (ia < 0 || ib < 0) return;
+
+        double ra = map.getDouble(offset(ia) + OFF_RATING);
+        double rb = map.getDouble(offset(ib) + OFF_RATING);
+        double expected = 1 / (1 + Math.pow(10, (rb - ra) / 400));
+        double delta = k * (score - expected);
+
+        update(ia, a, ra, ra + delta, score == 1.0 ? OFF_WINS : OFF_DRAWS);
+        update(ib, b, rb, rb - delta, score == 1.0 ? OFF_LOSSES : OFF_DRAWS);
+        map.force();
+
+        announce(a, ra + delta, delta);
+        announce(b, rb - delta, -delta);
+    }
+
+    private void update(int id, String name, double before, double after, int counterOffset) {
+        int at = offset(id);
+        map.putDouble(at + OFF_RATING, after);
+        map.putInt(at + counterOffset, map.getInt(at + counterOffset) + 1);
+
+        leaderboard.remove(new Standing(id, name, before));
+        leaderboard.add(new Standing(id, name, after));
+        fenwickAdd(bucket(before), -1);
+        fenwickAdd(bucket(after), 1);
+    }
+
+    private void announce(String name, double rating, double delta) {
+        ChatServer.sendPrivate(name, String.format("[RATING] %s %d (%+d)",
+                name, Math.round(rating), Math.round(delta)));
+    }
+
+    // Player ID with a rating record (created at the initial rating on the
+    // first rated game); -1 if the player can't be rated
+    private int idFor(String name) {
+        int id = players.idOf(name);
+        if (id == PlayerRegistry.NONE) return -1;
+        if (isRated(id)) return id;
+        if (disabled) return -1;
+
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > NAME_BYTES) {
+            AsyncLog.warn("[RATINGS] Name too long to rate: {}", name);
+            return -1;
+        }
+        try {
+            ensureCapacity(id + 1);
+        } catch (IOException e) {
+            AsyncLog.error("[RATINGS] Cannot grow {}: {}", file, e.getMessage());
+            return -1;
+        }
+
+        int at = offset(id);
+        for (int i = 0; i < RECORD; i++) map.put(at + i, (byte) 0);
+        map.put(at, bytes, 0, bytes.length);
+        map.putDouble(at + OFF_RATING, initial);
+        if (id >= slots) {
+            slots = id + 1;
+            map.putInt(8, slots);
+        }
+        rated++;
+
+        leaderboard.add(new Standing(id, name, initial));
+        fenwickAdd(bucket(initial), 1);
+        return id;
+    }
+
+    private boolean isRated(int id) {
+        return id >= 0 && id < slots && map.get(offset(id)) != 0;
+    }
+
+    private static int offset(int id) {
+        return HEADER + id * RECORD;
+    }
+
+    // -------------------- FILE --------------------
+
+    // Map an existing file and rebuild the in-memory indexes from it. A
+    // missing file is created on the first rated game, not here.
+    private void load() {
+        if (!file.exists()) return;
+        try {
+            open(Math.max(16, (int) ((file.length() - HEADER) / RECORD)));
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+                AsyncLog.error("[RATINGS] {} is not a ratings file; ratings disabled.", file);
+                disabled = true;
+                channel.close();
+                channel = null;
+                map = null;
+                return;
+            }
+            slots = Math.min(map.getInt(8), (map.capacity() - HEADER) / RECORD);
+            relocate();
+            for (int id = 0; id < slots; id++) {
+                if (!isRated(id)) continue;
+                double rating = map.getDouble(offset(id) + OFF_RATING);
+                leaderboard.add(new Standing(id, nameAt(id), rating));
+                fenwickAdd(bucket(rating), 1);
+                rated++;
+            }
+            AsyncLog.info("[RATINGS] Loaded {} players from {}", rated, file);
+        } catch (IOException e) {
+            AsyncLog.error("[RATINGS] Cannot read {}: {}", file, e.getMessage());
+        }
+    }
+
+    // Move every record to its player's registry ID (only does work for a
+    // file numbered before the registry existed)
+    private void relocate() throws IOException {
+        Map<Integer, byte[]> moved = new HashMap<>();
+        for (int slot = 0; slot < slots; slot++) {
+            if (!isRated(slot)) continue;
+            int id = players.idOf(nameAt(slot));
+            if (id == slot) continue;
+
+            byte[] record = new byte[RECORD];
+            map.get(offset(slot), record);
+            for (int i = 0; i < RECORD; i++) map.put(offset(slot) + i, (byte) 0);
+            if (id != PlayerRegistry.NONE) moved.put(id, record);
+        }
+        if (moved.isEmpty()) return;
+
+        for (Map.Entry<Integer, byte[]> e : moved.entrySet()) {
+            int id = e.getKey();
+            ensureCapacity(id + 1);
+            map.put(offset(id), e.getValue());
+            slots = Math.max(slots, id + 1);
+        }
+        map.putInt(8, slots);
+        map.force();
+        AsyncLog.info("[RATINGS] Renumbered {} records to shared player IDs", moved.size());
+    }
+
+    private String nameAt(int id) {
+        byte[] name = new byte[NAME_BYTES];
+        map.get(offset(id), name);
+        int len = 0;
+        while (len < NAME_BYTES && name[len] != 0) len++;
+        return new String(name, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(int records) throws IOException {
+        if (map == null) {
+            open(Math.max(64, records));
+            map.putInt(0, MAGIC);
+            map.putInt(4, VERSION);
+            map.putInt(8, 0);
+        } else if (offset(records) > map.capacity()) {
+            open(Math.max(records, (map.capacity() - HEADER) / RECORD * 2));
+        }
+    }
+
+    // (Re)map the file with room for `records` records; mapping past the
+    // end grows the file
+    private void open(int records) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, offset(records));
+    }
+
+    // -------------------- RANK INDEX (Fenwick) --------------------
+
+    private static int bucket(double rating) {
+        return (int) Math.max(0, Math.min(MAX_RATING - 1, Math.round(rating)));
+    }
+
+    private void fenwickAdd(int bucket, int delta) {
+        for (int i = bucket + 1; i <= MAX_RATING; i += i & -i) fenwick[i] += delta;
+    }
+
+    // Players in buckets [0, bucket]
+    private int fenwickSum(int bucket) {
+        int n = 0;
+        for (int i = bucket + 1; i > 0; i -= i & -i) n += fenwick[i];
+        return n;
+    }
+
+    // 1 + players rated above (same rounded rating = same rank)
+    private int rank(double rating) {
+        return 1 + rated - fenwickSum(bucket(rating));
+    }
+}
@@ -0,0 +1,248 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// ===============================================
+//        GAME REPLAY ARCHIVE (format + streaming reader)
+// ===============================================
+// The server (ReplayRecorder) appends every finished game to rolling archive
+// files replays/games-<first game ID>.ttr. A game's ID is implicit: the
+// file's first ID plus the record's position in the file.
+//
+// File:   16-byte header: magic "TTTG", version, first game ID (long)
+// Record: len    u8       bytes that follow
+//         meta   u8       move count (bits 0-3) | result << 4 | TIMEOUT
+//         start  u32      epoch seconds when the board was reset
+//         X, O   varint   player IDs (server's PlayerRegistry, shared with ratings)
+//         moves  per move: cell r*3+c (u8), then tenths of a second since
+//                the previous move (the start, for the first) as a varint
+// A typical game is 15-25 bytes.
+//
+// The reader is a cursor: next() decodes one record into fields that the
+// accessors read back, with no allocation per game, so a scan costs a few
+// byte reads per move. Standalone it prints archive-wide stats:
+//   java -cp protocol/target/classes ReplayReader [replays]
+public final class ReplayReader implements Closeable {
+
+    public static final int MAGIC = 0x54545447;   // "TTTG"
+    public static final int VERSION = 1;
+    public static final int HEADER = 16;
+    public static final int MAX_RECORD = 1 + 1 + 4 + 5 + 5 + 9 * 6;
+
+    public static final int RESULT_X = 0;
+    public static final int RESULT_O = 1;
+    public static final int RESULT_DRAW = 2;
+    public static final int TIMEOUT = 1 << 6;     // meta flag: the loser ran out of time
+
+    private static final int DELAY_UNIT_MILLIS = 100;
+
+    private final FileChannel channel;
+    private final long firstGameId;
+    private final byte[] buf = new byte[1 << 18];
+    private final ByteBuffer window = ByteBuffer.wrap(buf);
+    private long bufStart;   // file offset of buf[0]
+    private int pos, limit;  // unread bytes are buf[pos, limit)
+    private int at;          // decode position inside the current record
+    private long nextGameId;
+
+    // -------- current record --------
+    private long gameId;
+    private long offset;
+    private int meta;
+    private long startSeconds;
+    private int playerX, playerO;
+    private final byte[] cells = new byte[9];
+    private final int[] delays = new int[9];
+
+    private ReplayReader(FileChannel channel, long firstGameId) {
+        this.channel = channel;
+        this.firstGameId = firstGameId;
+        seek(HEADER, firstGameId);
+    }
+
+    public static ReplayReader open(File file) throws IOException {
+        FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining() && ch.read(header, header.position()) > 0) { }
+            header.flip();
+            if (header.remaining() < HEADER || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a replay archive");
+            }
+            return new ReplayReader(ch, header.getLong(8));
+        } catch (IOException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    // Archive files in a directory, oldest first (names are zero-padded IDs)
+    public static File[] archives(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.startsWith("games-") && name.endsWith(".ttr"));
+        if (files == null) return new File[0];
+        Arrays.sort(files);
+        return files;
+    }
+
+    public static String archiveName(long firstGameId) {
+        return String.format("games-%012d.ttr", firstGameId);
+    }
+
+    public long firstGameId() {
+        return firstGameId;
+    }
+
+    // Continue from a record boundary, e.g. a block offset from the index
+    public void seek(long fileOffset, long gameIdAtOffset) {
+        bufStart = fileOffset;
+        pos = limit = 0;
+        nextGameId = gameIdAtOffset;
+    }
+
+    // Decode the next record; false at end of file (a torn last record counts as the end)
+    public boolean next() throws IOException {
+        if (limit - pos < 1 && !fill(1)) return false;
+        int len = buf[pos] & 0xFF;
+        if (limit - pos < 1 + len && !fill(1 + len)) return false;
+
+        offset = bufStart + pos;
+        at = pos + 1;
+        meta = buf[at++] & 0xFF;
+        startSeconds = ((buf[at] & 0xFFL) << 24) | ((buf[at + 1] & 0xFF) << 16)
+                | ((buf[at + 2] & 0xFF) << 8) | (buf[at + 3] & 0xFF);
+        at += 4;
+        playerX = readVarint();
+        playerO = readVarint();
+
+        int n = meta & 0x0F;
+        if (n > 9) throw new IOException("corrupt replay record at offset " + offset);
+        for (int i = 0; i < n; i++) {
+            cells[i] = buf[at++];
+            delays[i] = readVarint();
+        }
+
+        pos += 1 + len;
+        gameId = nextGameId++;
+        return true;
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = buf[at++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    // Make at least `need` unread bytes available; false at end of file
+    private boolean fill(int need) throws IOException {
+        System.arraycopy(buf, pos, buf, 0, limit - pos);
+        bufStart += pos;
+        limit -= pos;
+        pos = 0;
+
+        while (limit < need) {
+            window.limit(buf.length).position(limit);
+            int n = channel.read(window, bufStart + limit);
+            if (n <= 0) return false;
+            limit += n;
+        }
+        return true;
+    }
+
+    // -------------------- CURRENT RECORD --------------------
+
+    public long gameId() { return gameId; }
+    public long offset() { return offset; }                   // file offset of this record
+    public long endOffset() { return bufStart + pos; }         // where the next record starts
+    public long startedAtMillis() { return startSeconds * 1000; }
+    public int playerX() { return playerX; }
+    public int playerO() { return playerO; }
+    public int result() { return (meta >> 4) & 0x03; }
+    public boolean timedOut() { return (meta & TIMEOUT) != 0; }
+    public int moves() { return meta & 0x0F; }
+    public int cell(int move) { return cells[move]; }
+    public int delayMillis(int move) { return delays[move] * DELAY_UNIT_MILLIS; }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // -------------------- ENCODING (server) --------------------
+
+    // Encode one game into out (at least MAX_RECORD bytes); returns the record length
+    public static int encode(byte[] out, int result, boolean timeout, long startedAtMillis,
+                             int playerX, int playerO, byte[] cells, int[] delayMillis, int moves) {
+        int p = 1;
+        out[p++] = (byte) (moves | result << 4 | (timeout ? TIMEOUT : 0));
+        long start = startedAtMillis / 1000;
+        out[p++] = (byte) (start >>> 24);
+        out[p++] = (byte) (start >>> 16);
+        out[p++] = (byte) (start >>> 8);
+        out[p++] = (byte) start;
+        p = writeVarint(out, p, playerX);
+        p = writeVarint(out, p, playerO);
+        for (int i = 0; i < moves; i++) {
+            out[p++] = cells[i];
+            p = writeVarint(out, p, Math.max(0, (delayMillis[i] + DELAY_UNIT_MILLIS / 2) / DELAY_UNIT_MILLIS));
+        }
+        out[0] = (byte) (p - 1);
+        return p;
+    }
+
+    private static int writeVarint(byte[] out, int p, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[p++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[p++] = (byte) value;
+        return p;
+    }
+
+    // -------------------- ANALYTICS --------------------
+
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "replays");
+        File[] files = archives(dir);
+        if (files.length == 0) {
+            System.out.println("[REPLAYS] No archives in " + dir);
+            return;
+        }
+
+        long games = 0, moves = 0, timeouts = 0, bytes = 0;
+        long[] results = new long[3];
+        long[] openings = new long[9];
+        long t0 = System.nanoTime();
+        for (File f : files) {
+            try (ReplayReader r = open(f)) {
+                while (r.next()) {
+                    games++;
+                    moves += r.moves();
+                    results[r.result()]++;
+                    if (r.timedOut()) timeouts++;
+                    if (r.moves() > 0) openings[r.cell(0)]++;
+                }
+                bytes += r.endOffset();
+            }
+        }
+        double secs = (System.nanoTime() - t0) / 1e9;
+        double g = Math.max(1, games);
+
+        System.out.printf("[REPLAYS] %d games in %d files, %.1f bytes/game%n", games, files.length, bytes / g);
+        System.out.printf("[REPLAYS] X won %.1f%%  O won %.1f%%  drawn %.1f%%  (on time %.1f%%), %.2f moves/game%n",
+                100 * results[RESULT_X] / g, 100 * results[RESULT_O] / g, 100 * results[RESULT_DRAW] / g,
+                100 * timeouts / g, moves / g);
+        System.out.println("[REPLAYS] Opening moves:");
+        for (int r = 0; r < 3; r++) {
+            System.out.printf("[REPLAYS]   %5.1f%% %5.1f%% %5.1f%%%n",
+                    100 * openings[r * 3] / g, 100 * openings[r * 3 + 1] / g, 100 * openings[r * 3 + 2] / g);
+        }
+        System.out.printf("[REPLAYS] Scanned in %.3fs: %.0f games/s%n", secs, games / Math.max(secs, 1e-9));
+    }
+}
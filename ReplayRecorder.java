@@ -0,0 +1,373 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// ===============================================
+//        REPLAY ARCHIVE (recorder + sparse index)
+// ===============================================
+// Every finished game is appended to the archive (format: ReplayReader) by
+// one "replays" thread; the game lock only pays for copying at most 9
+// moves. That thread owns all archive state:
+//
+//   replays/games-<first ID>.ttr   rolling archive files, rolled at -Dreplay.fileBytes
+//   replays/games-<first ID>.idx   sparse index of a full file, written when it rolls
+//
+// Player IDs in the records come from the shared PlayerRegistry, the same
+// IDs the ratings use.
+//
+// The sparse index holds the byte offset of every 64th game, and for each
+// player the 64-game blocks they played in. Finding a game reads one block;
+// a player's history reads only that player's blocks, newest first. The
+// open file's index lives in memory and is rebuilt by a scan on startup.
+//
+// Protocol:
+//   /replay <id>     REPLAY|<id>|<X|O|D>[T]|<cells r*3+c>|<delays ms>|<X name>|<O name>
+//                    (T = lost on time)
+//   /replays [name]  last games of a player as "[REPLAYS] ..." lines
+//
+// Settings: -Dreplay.dir=replays, -Dreplay.fileBytes=1048576
+class ReplayRecorder {
+
+    private static final int BLOCK = 64;           // games per index entry
+    private static final int IDX_MAGIC = 0x54545449;   // "TTTI"
+    private static final int MAX_LIST = 10;
+
+    private final File dir = new File(System.getProperty("replay.dir", "replays"));
+    private final long fileBytes = Math.max(4096, Long.getLong("replay.fileBytes", 1 << 20));
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "replays");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // One archive file and its index
+    private static final class Segment {
+        final File file;
+        final long firstGameId;
+        int count;
+        int[] blockOffsets = new int[16];
+        int blocks;
+        final Map<Integer, int[]> playerBlocks = new HashMap<>();   // player ID → ascending block numbers
+
+        Segment(File file, long firstGameId) {
+            this.file = file;
+            this.firstGameId = firstGameId;
+        }
+
+        void add(long offset, int playerX, int playerO) {
+            int block = count / BLOCK;
+            if (count % BLOCK == 0) {
+                if (blocks == blockOffsets.length) blockOffsets = Arrays.copyOf(blockOffsets, blocks * 2);
+                blockOffsets[blocks++] = (int) offset;
+            }
+            posting(playerX, block);
+            posting(playerO, block);
+            count++;
+        }
+
+        private void posting(int player, int block) {
+            int[] b = playerBlocks.get(player);
+            if (b != null && b[b.length - 1] == block) return;
+            b = b == null ? new int[1] : Arrays.copyOf(b, b.length + 1);
+            b[b.length - 1] = block;
+            playerBlocks.put(player, b);
+        }
+
+        File indexFile() {
+            String name = file.getName();
+            return new File(file.getParentFile(), name.substring(0, name.length() - 4) + ".idx");
+        }
+    }
+
+    // -------- owned by the replays thread --------
+    private final List<Segment> segments = new ArrayList<>();   // oldest first; last one is open
+    private FileChannel active;
+    private long activeEnd;
+    private final byte[] scratch = new byte[ReplayReader.MAX_RECORD];
+    private final PlayerRegistry players;
+
+    // -------- read by any thread (stats) --------
+    private volatile long nextGameId = 0;
+    private volatile long archivedBytes = 0;
+
+    public ReplayRecorder(PlayerRegistry players) {
+        this.players = players;
+        submit(this::load);
+    }
+
+    // -------------------- RECORDING (game lock, non-blocking) --------------------
+
+    public void record(String playerX, String playerO, int result, boolean timeout,
+                       long startedAt, byte[] cells, int[] delayMillis, int moves) {
+        if (playerX == null || playerO == null) return;
+        byte[] c = Arrays.copyOf(cells, moves);
+        int[] d = Arrays.copyOf(delayMillis, moves);
+        submit(() -> append(playerX, playerO, result, timeout, startedAt, c, d));
+    }
+
+    // -------------------- QUERIES (answered from the replays thread) --------------------
+
+    public void sendReplay(ClientHandler asker, long gameId) {
+        submit(() -> {
+            Segment s = segmentOf(gameId);
+            if (s == null) {
+                asker.send("[ERROR] No replay #" + gameId + ".");
+                return;
+            }
+            int block = (int) ((gameId - s.firstGameId) / BLOCK);
+            try (ReplayReader r = ReplayReader.open(s.file)) {
+                r.seek(s.blockOffsets[block], s.firstGameId + (long) block * BLOCK);
+                while (r.next()) {
+                    if (r.gameId() == gameId) {
+                        asker.send(replayLine(r));
+                        return;
+                    }
+                }
+            }
+            asker.send("[ERROR] No replay #" + gameId + ".");
+        });
+    }
+
+    public void sendList(ClientHandler asker, String name) {
+        submit(() -> {
+            int player = players.find(name);
+            List<String> lines = new ArrayList<>();
+            for (int i = segments.size() - 1; i >= 0 && player != PlayerRegistry.NONE && lines.size() < MAX_LIST; i--) {
+                Segment s = segments.get(i);
+                int[] blocks = s.playerBlocks.get(player);
+                if (blocks == null) continue;
+
+                try (ReplayReader r = ReplayReader.open(s.file)) {
+                    for (int b = blocks.length - 1; b >= 0 && lines.size() < MAX_LIST; b--) {
+                        long first = s.firstGameId + (long) blocks[b] * BLOCK;
+                        r.seek(s.blockOffsets[blocks[b]], first);
+                        List<String> inBlock = new ArrayList<>();
+                        while (r.next() && r.gameId() < first + BLOCK) {
+                            if (r.playerX() == player || r.playerO() == player) inBlock.add(summary(r));
+                        }
+                        for (int k = inBlock.size() - 1; k >= 0 && lines.size() < MAX_LIST; k--) {
+                            lines.add(inBlock.get(k));
+                        }
+                    }
+                }
+            }
+
+            if (lines.isEmpty()) {
+                asker.send("[REPLAYS] No recorded games for " + name + ".");
+                return;
+            }
+            asker.send("[REPLAYS] Last " + lines.size() + " games of " + name + " (/replay <id> to watch):");
+            for (String line : lines) asker.send(line);
+        });
+    }
+
+    public long gameCount() {
+        return nextGameId;
+    }
+
+    public long bytesPerGame() {
+        long games = nextGameId;
+        return games == 0 ? 0 : archivedBytes / games;
+    }
+
+    // -------------------- REPLAYS THREAD --------------------
+
+    private interface IOTask {
+        void run() throws IOException;
+    }
+
+    private void submit(IOTask task) {
+        worker.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                AsyncLog.error("[REPLAYS] {}", e.toString());
+            }
+        });
+    }
+
+    private void append(String xName, String oName, int result, boolean timeout,
+                        long startedAt, byte[] cells, int[] delays) throws IOException {
+        int x = playerId(xName);
+        int o = playerId(oName);
+        int len = ReplayReader.encode(scratch, result, timeout, startedAt, x, o, cells, delays, cells.length);
+
+        if (active == null || activeEnd + len > fileBytes) roll();
+        ByteBuffer record = ByteBuffer.wrap(scratch, 0, len);
+        long at = activeEnd;
+        while (record.hasRemaining()) at += active.write(record, at);
+
+        segments.get(segments.size() - 1).add(activeEnd, x, o);
+        activeEnd = at;
+        archivedBytes += len;
+        long id = nextGameId++;
+
+        ChatServer.broadcast("[SERVER] Game saved as replay #" + id + " (/replay " + id + ").");
+    }
+
+    // Seal the open file (write its index) and start a new one at nextGameId
+    private void roll() throws IOException {
+        if (active != null) {
+            active.close();
+            active = null;
+            writeIndex(segments.get(segments.size() - 1));
+        }
+
+        dir.mkdirs();
+        File file = new File(dir, ReplayReader.archiveName(nextGameId));
+        active = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,   // never clobber a file we couldn't read
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(ReplayReader.HEADER);
+        header.putInt(ReplayReader.MAGIC).putInt(ReplayReader.VERSION).putLong(nextGameId).flip();
+        while (header.hasRemaining()) active.write(header, header.position());
+        activeEnd = ReplayReader.HEADER;
+        segments.add(new Segment(file, nextGameId));
+    }
+
+    private Segment segmentOf(long gameId) {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            Segment s = segments.get(i);
+            if (gameId >= s.firstGameId) return gameId < s.firstGameId + s.count ? s : null;
+        }
+        return null;
+    }
+
+    private String replayLine(ReplayReader r) {
+        StringBuilder sb = new StringBuilder("REPLAY|").append(r.gameId()).append('|')
+                .append(resultCode(r.result())).append(r.timedOut() ? "T" : "").append('|');
+        for (int i = 0; i < r.moves(); i++) sb.append(i > 0 ? "," : "").append(r.cell(i));
+        sb.append('|');
+        for (int i = 0; i < r.moves(); i++) sb.append(i > 0 ? "," : "").append(r.delayMillis(i));
+        return sb.append('|').append(nameOf(r.playerX())).append('|').append(nameOf(r.playerO())).toString();
+    }
+
+    // "[REPLAYS] #42 alice vs bob: alice won in 5 moves"
+    private String summary(ReplayReader r) {
+        String x = nameOf(r.playerX());
+        String o = nameOf(r.playerO());
+        String outcome;
+        if (r.result() == ReplayReader.RESULT_DRAW) {
+            outcome = "draw in " + r.moves() + " moves";
+        } else {
+            outcome = (r.result() == ReplayReader.RESULT_X ? x : o) + " won "
+                    + (r.timedOut() ? "on time" : "in " + r.moves() + " moves");
+        }
+        return "[REPLAYS] #" + r.gameId() + " " + x + " vs " + o + ": " + outcome;
+    }
+
+    private static char resultCode(int result) {
+        return result == ReplayReader.RESULT_X ? 'X' : result == ReplayReader.RESULT_O ? 'O' : 'D';
+    }
+
+    // -------------------- PLAYERS --------------------
+
+    private int playerId(String name) throws IOException {
+        int id = players.idOf(name);
+        if (id == PlayerRegistry.NONE) throw new IOException("no player ID for " + name + "; game not archived");
+        return id;
+    }
+
+    private String nameOf(int id) {
+        String name = players.nameOf(id);
+        return name != null ? name : "player" + id;
+    }
+
+    // -------------------- STARTUP --------------------
+
+    // Load or rebuild each file's index, and reopen the newest file for
+    // appending (cutting off a record torn by a crash)
+    private void load() throws IOException {
+        File[] files = ReplayReader.archives(dir);
+        for (int i = 0; i < files.length; i++) {
+            boolean newest = i == files.length - 1;
+            Segment s;
+            long end;
+            try (ReplayReader r = ReplayReader.open(files[i])) {
+                s = new Segment(files[i], r.firstGameId());
+                if (!newest && readIndex(s)) {
+                    end = files[i].length();
+                } else {
+                    while (r.next()) s.add(r.offset(), r.playerX(), r.playerO());
+                    end = r.endOffset();
+                    if (!newest) writeIndex(s);
+                }
+            } catch (IOException e) {
+                AsyncLog.error("[REPLAYS] Skipping {}: {}", files[i], e.getMessage());
+                continue;
+            }
+
+            segments.add(s);
+            nextGameId = s.firstGameId + s.count;
+            archivedBytes += end - ReplayReader.HEADER;
+            if (newest) {
+                active = FileChannel.open(s.file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                active.truncate(end);
+                activeEnd = end;
+            }
+        }
+        if (!segments.isEmpty()) {
+            AsyncLog.info("[REPLAYS] {} games in {} files under {}", nextGameId, segments.size(), dir);
+        }
+    }
+
+    // Index file: magic, game count, block count, block offsets, then per
+    // player: ID, block count, block numbers
+    private void writeIndex(Segment s) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(s.indexFile())))) {
+            out.writeInt(IDX_MAGIC);
+            out.writeInt(s.count);
+            out.writeInt(s.blocks);
+            for (int i = 0; i < s.blocks; i++) out.writeInt(s.blockOffsets[i]);
+            out.writeInt(s.playerBlocks.size());
+            for (Map.Entry<Integer, int[]> e : s.playerBlocks.entrySet()) {
+                out.writeInt(e.getKey());
+                out.writeInt(e.getValue().length);
+                for (int b : e.getValue()) out.writeInt(b);
+            }
+        }
+    }
+
+    private boolean readIndex(Segment s) {
+        File idx = s.indexFile();
+        if (!idx.exists()) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(idx)))) {
+            if (in.readInt() != IDX_MAGIC) return false;
+            s.count = in.readInt();
+            s.blocks = in.readInt();
+            s.blockOffsets = new int[Math.max(1, s.blocks)];
+            for (int i = 0; i < s.blocks; i++) s.blockOffsets[i] = in.readInt();
+            int players = in.readInt();
+            for (int p = 0; p < players; p++) {
+                int id = in.readInt();
+                int[] blocks = new int[in.readInt()];
+                for (int i = 0; i < blocks.length; i++) blocks[i] = in.readInt();
+                s.playerBlocks.put(id, blocks);
+            }
+            return true;
+        } catch (IOException e) {
+            AsyncLog.warn("[REPLAYS] Rebuilding index {}: {}", idx, e.getMessage());
+            s.count = 0;
+            s.blocks = 0;
+            s.blockOffsets = new int[16];
+            s.playerBlocks.clear();
+            return false;
+        }
+    }
+}
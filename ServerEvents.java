@@ -0,0 +1,99 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// ===============================================
+//        JFR EVENTS (Java Flight Recorder)
+// ===============================================
+// Custom events so a recording can tie monitor waits, socket writes and GC
+// pauses on a thread to the game, user or transfer that thread was busy
+// with. All of them are disabled by default: when no recording enables
+// them, begin()/commit() compile down to a flag check and the event object
+// is scalar-replaced, so they stay in the code permanently.
+//
+// Turn them on with the bundled settings file (next to the default profile):
+//   java -XX:StartFlightRecording:settings=default,settings=tictactoechat.jfc,filename=server.jfr ChatServer
+//   jfr print --categories "TicTacToe Chat" server.jfr
+//
+// Usage pattern (same for every event):
+//   ServerEvents.Move e = new ServerEvents.Move();
+//   e.begin();  ...work...
+//   if (e.shouldCommit()) { e.user = ...; e.commit(); }
+final class ServerEvents {
+
+    // The server runs a single game today; every event is tagged with it
+    static final String MAIN_ROOM = "main";
+
+    private ServerEvents() {}
+
+    @Name("tictactoechat.Move")
+    @Label("Move")
+    @Category({"TicTacToe Chat", "Game"})
+    @Description("TicTacToeGame.makeMove, from validation to the board being sent")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Move extends Event {
+        @Label("Room") String room;
+        @Label("User") String user;
+        @Label("Row") int row;
+        @Label("Column") int col;
+        @Label("Sequence") long seq;
+        @Label("Accepted") boolean accepted;
+    }
+
+    @Name("tictactoechat.Broadcast")
+    @Label("Broadcast")
+    @Category({"TicTacToe Chat", "Network"})
+    @Description("ChatServer.broadcast: players written, spectators queued")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Broadcast extends Event {
+        @Label("Room") String room;
+        @Label("Players") int players;
+        @Label("Spectators") int spectators;
+        @Label("Message Size") @DataAmount int bytes;   // encoded, per recipient
+    }
+
+    @Name("tictactoechat.ClientJoin")
+    @Label("Client Join")
+    @Category({"TicTacToe Chat", "Connections"})
+    @Description("ChatServer.addClient, including the snapshot sent to the new client")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class ClientJoin extends Event {
+        @Label("Room") String room;
+        @Label("User") String user;
+        @Label("Role") String role;        // X, O, spectator, rejected
+    }
+
+    @Name("tictactoechat.ClientLeave")
+    @Label("Client Leave")
+    @Category({"TicTacToe Chat", "Connections"})
+    @Description("ChatServer.removeClient, including the leave broadcast and game reset")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class ClientLeave extends Event {
+        @Label("Room") String room;
+        @Label("User") String user;
+    }
+
+    @Name("tictactoechat.FileTransfer")
+    @Label("File Transfer")
+    @Category({"TicTacToe Chat", "Network"})
+    @Description("ClientHandler.handleFileTransfer, relaying the raw bytes to the receiver (committed on failure too)")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class FileTransfer extends Event {
+        @Label("Room") String room;
+        @Label("Sender") String sender;
+        @Label("Receiver") String receiver;
+        @Label("File Name") String fileName;
+        @Label("Bytes") @DataAmount long bytes;
+        @Label("Completed") boolean completed;
+    }
+}
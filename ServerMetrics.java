@@ -0,0 +1,157 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+// ===============================================
+//        SERVER METRICS (always on)
+// ===============================================
+// Counters are LongAdders (striped, so concurrent handler threads don't
+// fight over one cache line) and latencies go into lock-free
+// LatencyHistograms. Recording is an add or one atomic increment, cheap
+// enough to leave on in production.
+//
+// Gauges (players, spectators, client outbox and spectator queue depth) are
+// not stored; they are read from the live structures when someone asks.
+//
+// Exposed two ways:
+//   JMX     tictactoechat:type=ServerMetrics (jconsole / VisualVM)
+//   /stats  text snapshot sent back to the asking client as [STATS] lines
+public class ServerMetrics implements ServerMetricsMBean {
+
+    private final long startedAt = System.nanoTime();
+
+    // -------------------- COUNTERS --------------------
+    public final LongAdder connectionsAccepted = new LongAdder();
+    public final LongAdder connectionsRejected = new LongAdder();   // bad or duplicate username
+    public final LongAdder slowDisconnects = new LongAdder();       // outbox over budget (not reading)
+    public final LongAdder spectatorDrops = new LongAdder();        // shard queue full, delivery dropped
+    private final LongAdder[] messages = new LongAdder[RateLimiter.MessageClass.values().length];
+    public final LongAdder fileBytes = new LongAdder();
+    private final LongAdder fileNanos = new LongAdder();
+
+    // -------------------- HISTOGRAMS (ns) --------------------
+    public final LatencyHistogram makeMove = new LatencyHistogram();          // incl. waiting for the game lock
+    public final LatencyHistogram broadcast = new LatencyHistogram();         // players sent + spectators queued
+    public final LatencyHistogram spectatorFanout = new LatencyHistogram();   // queued → whole shard written
+    public final LatencyHistogram fileTransfer = new LatencyHistogram();      // per transfer
+
+    public ServerMetrics() {
+        for (int i = 0; i < messages.length; i++) messages[i] = new LongAdder();
+    }
+
+    public void message(RateLimiter.MessageClass type) {
+        messages[type.ordinal()].increment();
+    }
+
+    public void fileTransferred(long bytes, long nanos) {
+        fileBytes.add(bytes);
+        fileNanos.add(nanos);
+        fileTransfer.record(nanos);
+    }
+
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(this, new ObjectName("tictactoechat:type=ServerMetrics"));
+        } catch (Exception e) {
+            AsyncLog.error("[SERVER ERROR] Could not register metrics MBean: {}", e.getMessage());
+        }
+    }
+
+    // -------------------- TEXT SNAPSHOT --------------------
+
+    @Override
+    public String snapshot() {
+        StringBuilder sb = new StringBuilder();
+        line(sb, "uptime=" + getUptimeSeconds() + "s players=" + getPlayers()
+                + " spectators=" + getSpectators());
+        line(sb, "connections accepted=" + getConnectionsAccepted()
+                + " rejected=" + getConnectionsRejected()
+                + " flood_disconnects=" + getFloodDisconnects()
+                + " slow_disconnects=" + getSlowDisconnects());
+        line(sb, "client_outbox queued_bytes=" + getClientQueueBytes()
+                + " max_client_bytes=" + getMaxClientQueueBytes());
+
+        StringBuilder msgs = new StringBuilder("messages");
+        for (RateLimiter.MessageClass c : RateLimiter.MessageClass.values()) {
+            msgs.append(' ').append(c.name().toLowerCase()).append('=').append(messages[c.ordinal()].sum());
+        }
+        msgs.append(" dropped=").append(getDroppedMessages())
+                .append(" delayed=").append(sum(RateLimiter.DELAYED));
+        line(sb, msgs.toString());
+
+        line(sb, "makeMove " + makeMove.summary(TimeUnit.MICROSECONDS));
+        line(sb, "broadcast " + broadcast.summary(TimeUnit.MICROSECONDS));
+        line(sb, "spectator_fanout " + spectatorFanout.summary(TimeUnit.MICROSECONDS)
+                + " queued=" + getSpectatorQueueDepth() + " max_shard_queue=" + getMaxSpectatorQueueDepth()
+                + " dropped=" + spectatorDrops.sum());
+        PositionAnalyzer a = ChatServer.analyzer;
+        line(sb, "analysis cache_hits=" + a.hitCount() + " misses=" + a.missCount()
+                + " cached=" + a.cacheSize() + " stale=" + a.staleCount() + " dropped=" + a.droppedCount());
+        line(sb, "replays games=" + ChatServer.replays.gameCount()
+                + " bytes_per_game=" + ChatServer.replays.bytesPerGame());
+        line(sb, "files n=" + fileTransfer.count() + " bytes=" + getFileBytes()
+                + String.format(" rate=%.1fKB/s", getFileBytesPerSecond() / 1024));
+        return sb.toString();
+    }
+
+    private static void line(StringBuilder sb, String text) {
+        sb.append("[STATS] ").append(text).append('\n');
+    }
+
+    private static long sum(LongAdder[] adders) {
+        long n = 0;
+        for (LongAdder a : adders) n += a.sum();
+        return n;
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+
+    // -------------------- MBEAN --------------------
+
+    @Override public long getUptimeSeconds() { return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAt); }
+    @Override public int getPlayers() { return ChatServer.playerCount(); }
+    @Override public int getSpectators() { return ChatServer.spectatorFanout.size(); }
+    @Override public long getConnectionsAccepted() { return connectionsAccepted.sum(); }
+    @Override public long getConnectionsRejected() { return connectionsRejected.sum(); }
+    @Override public long getFloodDisconnects() { return RateLimiter.DISCONNECTS.sum(); }
+    @Override public long getSlowDisconnects() { return slowDisconnects.sum(); }
+    @Override public long getClientQueueBytes() { return ChatServer.sessions.queuedBytes(); }
+    @Override public long getMaxClientQueueBytes() { return ChatServer.sessions.maxQueuedBytes(); }
+
+    @Override public long getChatMessages() { return messages[RateLimiter.MessageClass.CHAT.ordinal()].sum(); }
+    @Override public long getPrivateMessages() { return messages[RateLimiter.MessageClass.PM.ordinal()].sum(); }
+    @Override public long getMoveMessages() { return messages[RateLimiter.MessageClass.MOVE.ordinal()].sum(); }
+    @Override public long getTypingMessages() { return messages[RateLimiter.MessageClass.TYPING.ordinal()].sum(); }
+    @Override public long getFileMessages() { return messages[RateLimiter.MessageClass.FILE.ordinal()].sum(); }
+    @Override public long getControlMessages() { return messages[RateLimiter.MessageClass.CONTROL.ordinal()].sum(); }
+    @Override public long getDroppedMessages() { return sum(RateLimiter.DROPPED); }
+
+    @Override public long getMakeMoveCount() { return makeMove.count(); }
+    @Override public double getMakeMoveP50Micros() { return micros(makeMove.percentile(50)); }
+    @Override public double getMakeMoveP99Micros() { return micros(makeMove.percentile(99)); }
+    @Override public double getBroadcastP50Micros() { return micros(broadcast.percentile(50)); }
+    @Override public double getBroadcastP99Micros() { return micros(broadcast.percentile(99)); }
+    @Override public double getSpectatorFanoutP99Micros() { return micros(spectatorFanout.percentile(99)); }
+    @Override public int getSpectatorQueueDepth() { return ChatServer.spectatorFanout.queueDepth(); }
+    @Override public int getMaxSpectatorQueueDepth() { return ChatServer.spectatorFanout.maxQueueDepth(); }
+
+    @Override public long getFileBytes() { return fileBytes.sum(); }
+
+    @Override
+    public double getFileBytesPerSecond() {
+        long nanos = fileNanos.sum();
+        return nanos == 0 ? 0 : fileBytes.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public void resetHistograms() {
+        makeMove.reset();
+        broadcast.reset();
+        spectatorFanout.reset();
+        fileTransfer.reset();
+    }
+}
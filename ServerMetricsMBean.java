@@ -0,0 +1,61 @@
+// JMX view of ServerMetrics (registered as tictactoechat:type=ServerMetrics).
+// Latencies are in microseconds.
+public interface ServerMetricsMBean {
+
+    long getUptimeSeconds();
+
+    int getPlayers();
+
+    int getSpectators();
+
+    long getConnectionsAccepted();
+
+    long getConnectionsRejected();
+
+    long getFloodDisconnects();
+
+    long getSlowDisconnects();
+
+    long getClientQueueBytes();
+
+    long getMaxClientQueueBytes();
+
+    long getChatMessages();
+
+    long getPrivateMessages();
+
+    long getMoveMessages();
+
+    long getTypingMessages();
+
+    long getFileMessages();
+
+    long getControlMessages();
+
+    long getDroppedMessages();
+
+    long getMakeMoveCount();
+
+    double getMakeMoveP50Micros();
+
+    double getMakeMoveP99Micros();
+
+    double getBroadcastP50Micros();
+
+    double getBroadcastP99Micros();
+
+    double getSpectatorFanoutP99Micros();
+
+    int getSpectatorQueueDepth();
+
+    int getMaxSpectatorQueueDepth();
+
+    long getFileBytes();
+
+    double getFileBytesPerSecond();
+
+    // Same text the /stats command returns
+    String snapshot();
+
+    void resetHistograms();
+}
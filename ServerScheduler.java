@@ -0,0 +1,35 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// ===============================================
+//        SHARED SERVER TIMER (one thread total)
+// ===============================================
+// Every deadline on the server (game clocks, etc.) is driven from this
+// single daemon thread instead of a Thread / Timer per game.
+// Tasks must stay short — they only flip state and hand off. Sending is
+// fine: ClientHandler.send and ChatServer.broadcast only enqueue on the
+// client outboxes and spectator shards. Disk work goes to the owning
+// service's worker (ratings, replays), never onto this thread.
+class ServerScheduler {
+
+    private static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "server-timer");
+                t.setDaemon(true);
+                return t;
+            });
+
+    private ServerScheduler() {}
+
+    public static ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+        return TIMER.schedule(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                AsyncLog.error("[SERVER ERROR] Scheduled task failed: {}", e.getMessage());
+            }
+        }, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+    }
+}
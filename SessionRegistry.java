@@ -0,0 +1,135 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// ===============================================
+//        SESSION REGISTRY (int session IDs)
+// ===============================================
+// Every logged-in client gets a compact int ID. Routing inside the server
+// works on IDs: the handler table is an array indexed by ID and game seats
+// hold IDs, so the per-message path never hashes or compares a username.
+// Names are resolved only at the edges: login, a /pm or FILE| target coming
+// in, and chat text / log lines going out.
+//
+// Freed IDs are reused lowest-first, so the table stays dense (its size
+// tracks the peak number of concurrent sessions, not the total ever seen).
+//
+// Writes (register / unregister) run under the ChatServer class lock.
+// Reads are lock-free: the table is an AtomicReferenceArray that is copied
+// and republished through a volatile field when it grows.
+final class SessionRegistry {
+
+    static final int NONE = -1;
+
+    private volatile AtomicReferenceArray<ClientHandler> table = new AtomicReferenceArray<>(64);
+    private final ConcurrentHashMap<String, Integer> byName = new ConcurrentHashMap<>();
+
+    // Free IDs below `next`, kept as a min-heap so the lowest is reused first
+    private int[] free = new int[16];
+    private int freeCount = 0;
+    private int next = 0;
+    private volatile int size = 0;
+
+    // -------------------- WRITES (ChatServer lock held) --------------------
+
+    // New ID for the name, or NONE if the name is already logged in
+    int register(String username, ClientHandler handler) {
+        if (byName.containsKey(username)) return NONE;
+
+        int id = freeCount > 0 ? pollFree() : next++;
+        AtomicReferenceArray<ClientHandler> t = table;
+        if (id >= t.length()) {
+            AtomicReferenceArray<ClientHandler> grown = new AtomicReferenceArray<>(t.length() * 2);
+            for (int i = 0; i < t.length(); i++) grown.set(i, t.get(i));
+            t = grown;
+            table = grown;
+        }
+        t.set(id, handler);
+        byName.put(username, id);
+        size++;
+        return id;
+    }
+
+    void unregister(int id, String username) {
+        AtomicReferenceArray<ClientHandler> t = table;
+        if (id < 0 || id >= t.length() || t.get(id) == null) return;
+
+        t.set(id, null);
+        byName.remove(username, id);
+        pushFree(id);
+        size--;
+    }
+
+    // -------------------- READS (any thread) --------------------
+
+    ClientHandler get(int id) {
+        AtomicReferenceArray<ClientHandler> t = table;
+        return id >= 0 && id < t.length() ? t.get(id) : null;
+    }
+
+    // Edge lookup: name typed by a user → ID, or NONE
+    int idOf(String username) {
+        Integer id = byName.get(username);
+        return id != null ? id : NONE;
+    }
+
+    // Edge lookup: ID → name for text going out, or null if not logged in
+    String nameOf(int id) {
+        ClientHandler h = get(id);
+        return h != null ? h.getUsername() : null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Bytes waiting in every session's outbox (gauge)
+    long queuedBytes() {
+        AtomicReferenceArray<ClientHandler> t = table;
+        long n = 0;
+        for (int i = 0; i < t.length(); i++) {
+            ClientHandler h = t.get(i);
+            if (h != null) n += h.queuedBytes();
+        }
+        return n;
+    }
+
+    // Deepest single outbox (gauge): the client closest to a slow disconnect
+    long maxQueuedBytes() {
+        AtomicReferenceArray<ClientHandler> t = table;
+        long max = 0;
+        for (int i = 0; i < t.length(); i++) {
+            ClientHandler h = t.get(i);
+            if (h != null) max = Math.max(max, h.queuedBytes());
+        }
+        return max;
+    }
+
+    // -------------------- FREE LIST (min-heap) --------------------
+
+    private void pushFree(int id) {
+        if (freeCount == free.length) free = Arrays.copyOf(free, freeCount * 2);
+        int i = freeCount++;
+        while (i > 0 && free[(i - 1) / 2] > id) {
+            free[i] = free[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        free[i] = id;
+    }
+
+    private int pollFree() {
+        int top = free[0];
+        int last = free[--freeCount];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= freeCount) break;
+            if (child + 1 < freeCount && free[child + 1] < free[child]) child++;
+            if (last <= free[child]) break;
+            free[i] = free[child];
+            i = child;
+        }
+        free[i] = last;
+        return top;
+    }
+}
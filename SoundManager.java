@@ -1,24 +1,161 @@
 import javax.sound.sampled.*;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+// Sound bank: every effect is decoded once into PCM and loaded into a small
+// pool of already-open Clips. play() just rewinds and starts a free voice,
+// stealing the oldest one if all are busy — no disk I/O, no new native
+// lines, nothing leaked. Sounds load from the classpath (works inside the
+// jar) and fall back to the working directory.
 public class SoundManager {
 
+    private static final String[] EFFECTS = { "click", "hover", "win", "lose", "retry" };
+    private static final int VOICES_PER_SOUND = 3;
+
+    private static final Map<String, Sound> bank = new ConcurrentHashMap<>();
+
+    // Trigger → line START latency (nanos)
+    private static final AtomicLong latencyCount = new AtomicLong();
+    private static final AtomicLong latencyTotal = new AtomicLong();
+    private static final AtomicLong latencyMax = new AtomicLong();
+
+    // Decode everything up front (call once at startup, off the EDT)
+    public static void preload() {
+        for (String name : EFFECTS) {
+            sound("sounds/" + name + ".wav");
+        }
+    }
+
     public static void play(String relativePath) {
-        try {
-            File file = new File(relativePath);
+        Sound s = sound(relativePath);
+        if (s != null) s.play();
+    }
+
+    // "plays=N avg=X.Xms max=Y.Yms"
+    public static String latencyStats() {
+        long n = latencyCount.get();
+        double avg = n == 0 ? 0 : latencyTotal.get() / (double) n / 1e6;
+        return String.format("plays=%d avg=%.1fms max=%.1fms", n, avg, latencyMax.get() / 1e6);
+    }
 
-            if (!file.exists()) {
-                System.out.println("FILE NOT FOUND: " + file.getAbsolutePath());
-                return;
+    private static Sound sound(String path) {
+        Sound s = bank.get(path);
+        if (s != null) return s;
+        return bank.computeIfAbsent(path, SoundManager::load);
+    }
+
+    private static Sound load(String path) {
+        try (InputStream raw = open(path)) {
+            if (raw == null) {
+                System.out.println("SOUND NOT FOUND: " + path);
+                return Sound.SILENT;
             }
 
-            AudioInputStream audio = AudioSystem.getAudioInputStream(file);
-            Clip clip = AudioSystem.getClip();
-            clip.open(audio);
-            clip.start();
+            AudioInputStream in = AudioSystem.getAudioInputStream(new BufferedInputStream(raw));
+            AudioFormat fmt = in.getFormat();
+
+            // Decode to plain PCM once so Clips never have to convert
+            if (fmt.getEncoding() != AudioFormat.Encoding.PCM_SIGNED) {
+                AudioFormat pcm = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
+                        fmt.getSampleRate(), 16, fmt.getChannels(), fmt.getChannels() * 2,
+                        fmt.getSampleRate(), false);
+                in = AudioSystem.getAudioInputStream(pcm, in);
+                fmt = pcm;
+            }
+            byte[] data = in.readAllBytes();
+
+            Clip[] voices = new Clip[VOICES_PER_SOUND];
+            boolean opened = false;
+            try {
+                for (int i = 0; i < voices.length; i++) {
+                    voices[i] = AudioSystem.getClip();
+                    voices[i].open(fmt, data, 0, data.length);
+                }
+                opened = true;
+            } finally {
+                if (!opened) {
+                    // Don't leak the lines that did open; the effect falls back to SILENT
+                    for (Clip c : voices) {
+                        if (c != null) c.close();
+                    }
+                }
+            }
+            return new Sound(voices);
 
         } catch (Exception e) {
-            System.out.println("Sound error: " + e.getMessage());
+            System.out.println("Sound error (" + path + "): " + e.getMessage());
+            return Sound.SILENT;
+        }
+    }
+
+    private static InputStream open(String path) throws Exception {
+        InputStream in = SoundManager.class.getResourceAsStream("/" + path);
+        if (in != null) return in;
+
+        File file = new File(path);
+        return file.exists() ? new FileInputStream(file) : null;
+    }
+
+    private static void recordLatency(long nanos) {
+        latencyCount.incrementAndGet();
+        latencyTotal.addAndGet(nanos);
+        latencyMax.accumulateAndGet(nanos, Math::max);
+    }
+
+    // One decoded effect and its pool of open Clips
+    private static final class Sound {
+        static final Sound SILENT = new Sound(new Clip[0]);
+
+        private final Clip[] voices;
+        private final long[] startedAt;
+        private final long[] triggeredAt;     // 0 = no pending latency sample
+
+        Sound(Clip[] voices) {
+            this.voices = voices;
+            this.startedAt = new long[voices.length];
+            this.triggeredAt = new long[voices.length];
+
+            for (int i = 0; i < voices.length; i++) {
+                final int v = i;
+                voices[i].addLineListener(e -> {
+                    if (e.getType() == LineEvent.Type.START) {
+                        long t;
+                        synchronized (this) {
+                            t = triggeredAt[v];
+                            triggeredAt[v] = 0;
+                        }
+                        if (t != 0) recordLatency(System.nanoTime() - t);
+                    }
+                });
+            }
+        }
+
+        synchronized void play() {
+            if (voices.length == 0) return;
+
+            // Free voice first, otherwise steal the one that started longest ago
+            int pick = 0;
+            for (int i = 0; i < voices.length; i++) {
+                if (!voices[i].isRunning()) {
+                    pick = i;
+                    break;
+                }
+                if (startedAt[i] < startedAt[pick]) pick = i;
+            }
+
+            Clip clip = voices[pick];
+            long now = System.nanoTime();
+            startedAt[pick] = now;
+            triggeredAt[pick] = now;
+
+            clip.stop();
+            clip.setFramePosition(0);
+            clip.start();
         }
     }
 }
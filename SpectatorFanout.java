@@ -0,0 +1,136 @@
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+// ===============================================
+//        SPECTATOR FAN-OUT (sharded writers)
+// ===============================================
+// Spectators are split across a fixed number of shards. Each shard owns a
+// bounded queue and one thread, so publishing costs the caller one enqueue
+// per shard no matter how many people are watching. Players are never
+// written from here — they are sent to directly by the game thread, so a
+// huge audience can't delay them.
+//
+// A shard thread only hands the pre-encoded line to each member's outbox
+// (ClientOutbox, bounded; a spectator that stops reading is disconnected
+// there), so one slow socket never holds up the rest of its shard. If a
+// shard queue is full anyway, the delivery is dropped and counted.
+//
+// Settings: -Dspectator.queue=4096 deliveries per shard
+class SpectatorFanout {
+
+    private static final int QUEUE = Math.max(16, Integer.getInteger("spectator.queue", 4096));
+
+    private final Shard[] shards;
+
+    public SpectatorFanout(int shardCount) {
+        shards = new Shard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(i);
+            shards[i].start();
+        }
+    }
+
+    public void add(ClientHandler spectator) {
+        shardFor(spectator).members.add(spectator);
+    }
+
+    public void remove(ClientHandler spectator) {
+        shardFor(spectator).members.remove(spectator);
+    }
+
+    // Queue a message for every spectator
+    public void publish(String message) {
+        publishExcept(null, message);
+    }
+
+    // Queue a message for every spectator except one
+    public void publishExcept(ClientHandler exclude, String message) {
+        byte[] line = null;
+        for (Shard s : shards) {
+            if (!s.members.isEmpty()) {
+                if (line == null) line = (message + "\n").getBytes();   // encoded once for every shard
+                s.offer(new Delivery(null, exclude, line));
+            }
+        }
+    }
+
+    // Queue a message for one spectator, ordered with everything published
+    // after it (used for the join snapshot so no delta can overtake it)
+    public void sendTo(ClientHandler spectator, String message) {
+        shardFor(spectator).offer(new Delivery(spectator, null, (message + "\n").getBytes()));
+    }
+
+    // Deliveries waiting across all shards (gauge)
+    public int queueDepth() {
+        int n = 0;
+        for (Shard s : shards) n += s.queue.size();
+        return n;
+    }
+
+    // Deepest single shard backlog (gauge): one slow shard shows up here
+    public int maxQueueDepth() {
+        int max = 0;
+        for (Shard s : shards) max = Math.max(max, s.queue.size());
+        return max;
+    }
+
+    public int size() {
+        int n = 0;
+        for (Shard s : shards) n += s.members.size();
+        return n;
+    }
+
+    private Shard shardFor(ClientHandler h) {
+        return shards[(System.identityHashCode(h) & 0x7fffffff) % shards.length];
+    }
+
+    private static final class Delivery {
+        final ClientHandler target;    // null = whole shard
+        final ClientHandler exclude;
+        final byte[] line;
+        final long queuedAt = System.nanoTime();
+
+        Delivery(ClientHandler target, ClientHandler exclude, byte[] line) {
+            this.target = target;
+            this.exclude = exclude;
+            this.line = line;
+        }
+    }
+
+    private static final class Shard extends Thread {
+        final BlockingQueue<Delivery> queue = new ArrayBlockingQueue<>(QUEUE);
+        final Set<ClientHandler> members = ConcurrentHashMap.newKeySet();   // O(1) join/leave
+
+        Shard(int index) {
+            super("spectator-writer-" + index);
+            setDaemon(true);
+        }
+
+        void offer(Delivery d) {
+            if (!queue.offer(d)) ChatServer.metrics.spectatorDrops.increment();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Delivery d;
+                try {
+                    d = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                if (d.target != null) {
+                    d.target.sendEncoded(d.line);
+                    continue;
+                }
+                for (ClientHandler h : members) {
+                    if (h != d.exclude) h.sendEncoded(d.line);
+                }
+                ChatServer.metrics.spectatorFanout.record(System.nanoTime() - d.queuedAt);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+// Cached starfield for scrolling views. The gradient + stars are rendered
+// once per size into a tile that repeats seamlessly (the gradient runs
+// top → bottom → top), and the tile is anchored to the view's own
+// coordinates. Because the background scrolls with the content, the
+// viewport can blit on scroll and only the newly exposed strip is painted.
+public class StarfieldBackground {
+
+    private final Color top;
+    private final Color bottom;
+    private final Color starColor;
+    private final int starsPerTile;
+
+    private BufferedImage tile;
+
+    public StarfieldBackground(Color top, Color bottom, Color starColor, int starsPerTile) {
+        this.top = top;
+        this.bottom = bottom;
+        this.starColor = starColor;
+        this.starsPerTile = starsPerTile;
+    }
+
+    // Paint the part of the background inside the current clip
+    public void paint(Graphics g, JComponent c) {
+        int w = c.getWidth();
+        if (w <= 0) return;
+
+        // One gradient cycle per viewport height (so it looks like the old
+        // fixed background), falling back to the component height
+        Container parent = c.getParent();
+        int period = parent instanceof JViewport ? parent.getHeight() : c.getHeight();
+        period = Math.max(64, period);
+
+        if (tile == null || tile.getWidth() != w || tile.getHeight() != period * 2) {
+            tile = renderTile(c, w, period);
+        }
+
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, w, c.getHeight());
+
+        int th = tile.getHeight();
+        int y = Math.floorDiv(clip.y, th) * th;
+        for (; y < clip.y + clip.height; y += th) {
+            g.drawImage(tile, 0, y, null);
+        }
+    }
+
+    private BufferedImage renderTile(JComponent c, int w, int period) {
+        int h = period * 2;
+        GraphicsConfiguration gc = c.getGraphicsConfiguration();
+        BufferedImage img = gc != null
+                ? gc.createCompatibleImage(w, h, Transparency.OPAQUE)
+                : new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D g2 = img.createGraphics();
+        g2.setPaint(new GradientPaint(0, 0, top, 0, period, bottom, true));   // cyclic → seamless
+        g2.fillRect(0, 0, w, h);
+
+        // Fixed seed: the same stars every time this size is rebuilt
+        Random rnd = new Random(w * 31L + h);
+        g2.setColor(starColor);
+        for (int i = 0; i < starsPerTile; i++) {
+            g2.fillOval(rnd.nextInt(w), rnd.nextInt(h), 2, 2);
+        }
+
+        g2.dispose();
+        return img;
+    }
+}
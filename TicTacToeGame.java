@@ -0,0 +1,401 @@
+// ===============================================
+//              TIC TAC TOE GAME SERVER
+// ===============================================
+class TicTacToeGame {
+
+    private final char[][] board = new char[3][3];
+    // Seats hold session IDs (SessionRegistry.NONE = empty); names are
+    // looked up only for text that goes out
+    private int playerX = NONE;
+    private int playerO = NONE;
+    private int currentTurn = NONE;
+
+    private int retryCount = 0;
+    private boolean gameOver = false;
+
+    // Pre-encoded [GAMEBOARD] line, rebuilt only when the board changes
+    private String boardSnapshot = null;
+
+    // Bumped on every board change; lets queued analysis spot that it is stale
+    private volatile int positionVersion = 0;
+
+    // Moves of the game in progress, for the replay archive
+    private final byte[] moveCells = new byte[9];   // r*3+c
+    private final int[] moveDelays = new int[9];    // ms since the previous move (the reset, for the first)
+    private int moveCount = 0;
+    private long startedAt, lastMoveAt;
+
+    // Optional time control (see GameClock). Spec applies from the next reset.
+    private String timeControl = System.getProperty("ttt.clock", "off");
+    private GameClock clock = null;
+    private int clockGeneration = 0;   // invalidates stale timeout callbacks
+
+    private static final int NONE = SessionRegistry.NONE;
+
+    public TicTacToeGame() {
+        resetBoard();
+    }
+
+    private static String name(int sessionId) {
+        return ChatServer.sessions.nameOf(sessionId);
+    }
+
+    private void resetBoard() {
+        for (int r = 0; r < 3; r++)
+            for (int c = 0; c < 3; c++)
+                board[r][c] = ' ';
+        boardSnapshot = null;
+        positionVersion++;
+        moveCount = 0;
+        startedAt = lastMoveAt = System.currentTimeMillis();
+
+        gameOver = false;
+        retryCount = 0;
+
+        if (playerX != NONE && playerO != NONE) {
+            currentTurn = playerX;  // X always starts
+        } else {
+            currentTurn = NONE;
+        }
+
+        resetClock();
+    }
+
+    // ---------------- CLOCK ----------------
+    private void resetClock() {
+        if (clock != null) clock.cancel();
+        clock = null;
+
+        try {
+            clock = GameClock.parse(timeControl);
+        } catch (IllegalArgumentException e) {
+            AsyncLog.warn("[GAME] Ignoring bad time control '{}'", timeControl);
+            timeControl = "off";
+        }
+
+        if (clock != null && currentTurn != NONE) {
+            startClock();
+        }
+    }
+
+    private void startClock() {
+        final int generation = ++clockGeneration;
+        clock.start(getSymbol(currentTurn), () -> onClockExpired(generation));
+    }
+
+    // Server timer thread: flagFall only changes state and queues messages
+    // (outboxes, fan-out, rating/replay workers), so it never blocks the timer
+    private synchronized void onClockExpired(int generation) {
+        if (generation != clockGeneration || gameOver || clock == null) return;
+        flagFall();
+    }
+
+    // Player to move ran out of time → they forfeit
+    private void flagFall() {
+        int loser = currentTurn;
+        int winner = loser == playerX ? playerO : playerX;
+
+        clock.cancel();
+        gameOver = true;
+        currentTurn = NONE;
+        archive(winner == playerX ? ReplayReader.RESULT_X : ReplayReader.RESULT_O, true);
+
+        String loserName = name(loser);
+        AsyncLog.info("[GAME] {} lost on time.", loserName);
+        ChatServer.broadcast("[SERVER] " + loserName + " ran out of time.");
+        sendClockUpdate();
+        sendOutcome(winner);
+    }
+
+    // Push authoritative clock state to everyone
+    public synchronized void sendClockUpdate() {
+        ChatServer.broadcast(clock != null ? clock.syncMessage() : "[CLOCK] OFF");
+    }
+
+    // "/ttt clock 60+2", "/ttt clock 10/move", "/ttt clock off"
+    public synchronized void setTimeControl(int sessionId, String spec) {
+        if (!isPlayer(sessionId)) {
+            ChatServer.sendPrivate(sessionId, "[ERROR] Only Tic-Tac-Toe players can set the clock.");
+            return;
+        }
+
+        GameClock parsed;
+        try {
+            parsed = GameClock.parse(spec);
+        } catch (IllegalArgumentException e) {
+            ChatServer.sendPrivate(sessionId, "[ERROR] Usage: /ttt clock <base>+<inc> | <secs>/move | off");
+            return;
+        }
+
+        timeControl = parsed == null ? "off" : parsed.describe();
+        ChatServer.broadcast("[SERVER] " + name(sessionId) + " set the clock to " + timeControl + ".");
+
+        // Apply right away if no move has been played yet
+        if (!gameOver && boardEmpty()) {
+            resetBoard();
+            sendBoardUpdate();
+            sendClockUpdate();
+        } else {
+            ChatServer.sendPrivate(sessionId, "[SERVER] New clock applies from the next game.");
+        }
+    }
+
+    public int positionVersion() {
+        return positionVersion;
+    }
+
+    public synchronized boolean hasBothPlayers() {
+        return (playerX != NONE && playerO != NONE);
+    }
+
+    // Assign first two connected players as X and O
+    public synchronized void assignPlayer(int sessionId) {
+        if (playerX == NONE) {
+            playerX = sessionId;
+            currentTurn = playerX;
+            AsyncLog.info("[GAME] {} assigned as X", name(sessionId));
+        } else if (playerO == NONE) {
+            playerO = sessionId;
+            AsyncLog.info("[GAME] {} assigned as O", name(sessionId));
+
+            // Both players ready → start fresh board
+            resetBoard();
+            sendBoardUpdate();
+            sendClockUpdate();
+        } else {
+            // ChatServer only seats MAX_PLAYERS, so this should not be reachable,
+            // but we keep it logged for debugging.
+            AsyncLog.warn("[GAME] {} tried to join but both players already assigned.", name(sessionId));
+        }
+    }
+
+    public synchronized void removePlayer(int sessionId) {
+        boolean changed = false;
+
+        if (sessionId != NONE && sessionId == playerX) {
+            AsyncLog.info("[GAME] Player X ({}) removed.", name(playerX));
+            playerX = NONE;
+            changed = true;
+        } else if (sessionId != NONE && sessionId == playerO) {
+            AsyncLog.info("[GAME] Player O ({}) removed.", name(playerO));
+            playerO = NONE;
+            changed = true;
+        }
+
+        if (changed) {
+            gameOver = true;
+            retryCount = 0;
+            currentTurn = NONE;
+            ChatServer.broadcast("[SERVER] A Tic-Tac-Toe player left. Game reset.");
+            resetBoard();
+            sendBoardUpdate();
+            sendClockUpdate();
+        }
+    }
+
+    public synchronized boolean isPlayer(int sessionId) {
+        return sessionId != NONE && (sessionId == playerX || sessionId == playerO);
+    }
+
+    public synchronized char getSymbol(int sessionId) {
+        if (sessionId == NONE) return ' ';
+        if (sessionId == playerX) return 'X';
+        if (sessionId == playerO) return 'O';
+        return ' ';
+    }
+
+    // Move with a client sequence number: the mover gets [MOVE_ACK] <seq> or
+    // [MOVE_REJECT] <seq> so a predicted move can be confirmed or rolled back
+    public synchronized boolean makeMove(int sessionId, int r, int c, long seq) {
+        ServerEvents.Move event = new ServerEvents.Move();
+        event.begin();
+
+        boolean ok = makeMove(sessionId, r, c);
+        if (seq >= 0) {
+            ChatServer.sendPrivate(sessionId, (ok ? "[MOVE_ACK] " : "[MOVE_REJECT] ") + seq);
+        }
+
+        if (event.shouldCommit()) {
+            event.room = ServerEvents.MAIN_ROOM;
+            event.user = name(sessionId);
+            event.row = r;
+            event.col = c;
+            event.seq = seq;
+            event.accepted = ok;
+            event.commit();
+        }
+        return ok;
+    }
+
+    public synchronized boolean makeMove(int sessionId, int r, int c) {
+        if (!isPlayer(sessionId)) {
+            ChatServer.sendPrivate(sessionId, "[ERROR] You are not a Tic-Tac-Toe player.");
+            return false;
+        }
+
+        if (playerX == NONE || playerO == NONE) {
+            ChatServer.sendPrivate(sessionId, "[ERROR] Waiting for another player to join the game.");
+            return false;
+        }
+
+        if (gameOver) {
+            ChatServer.sendPrivate(sessionId, "[ERROR] Game is over. Press Retry to start again.");
+            return false;
+        }
+
+        if (r < 0 || r > 2 || c < 0 || c > 2) {
+            ChatServer.sendPrivate(sessionId, "[ERROR] Invalid move coordinates.");
+            return false;
+        }
+
+        if (sessionId != currentTurn) {
+            ChatServer.sendPrivate(sessionId, "[ERROR] Not your turn.");
+            return false;
+        }
+
+        if (board[r][c] != ' ') {
+            ChatServer.sendPrivate(sessionId, "[ERROR] That cell is already taken.");
+            return false;
+        }
+
+        // Stop the mover's clock; a move after the flag fell is a loss on time
+        if (clock != null && !clock.stop()) {
+            flagFall();
+            return false;
+        }
+
+        // Place mark
+        char sym = getSymbol(sessionId);
+        board[r][c] = sym;
+        boardSnapshot = null;
+
+        long now = System.currentTimeMillis();
+        moveCells[moveCount] = (byte) (r * 3 + c);
+        moveDelays[moveCount++] = (int) (now - lastMoveAt);
+        lastMoveAt = now;
+
+        // Players get the full board right away; spectators get a queued delta
+        ChatServer.sendToPlayers(encodeBoard());
+        ChatServer.spectatorFanout.publish("[GAMEMOVE] " + r + "," + c + "," + sym);
+        ChatServer.analyzer.submit(this, board, ++positionVersion);
+
+        // Check win
+        if (checkWin(sym)) {
+            gameOver = true;
+            archive(sym == 'X' ? ReplayReader.RESULT_X : ReplayReader.RESULT_O, false);
+            if (clock != null) sendClockUpdate();
+            sendOutcome(sessionId);
+            return true;
+        }
+
+        // Check draw
+        if (boardFull()) {
+            gameOver = true;
+            archive(ReplayReader.RESULT_DRAW, false);
+            if (clock != null) sendClockUpdate();
+            sendDraw();
+            return true;
+        }
+
+        // Switch turn
+        if (currentTurn == playerX) {
+            currentTurn = playerO;
+        } else {
+            currentTurn = playerX;
+        }
+
+        if (clock != null) {
+            startClock();
+            sendClockUpdate();
+        }
+
+        return true;
+    }
+
+    // Finished game → replay archive (copied here, written off the game thread)
+    private void archive(int result, boolean timeout) {
+        ChatServer.replays.record(name(playerX), name(playerO), result, timeout,
+                startedAt, moveCells, moveDelays, moveCount);
+    }
+
+    private boolean checkWin(char p) {
+        return TicTacToeRules.checkWin(board, p);
+    }
+
+    private boolean boardEmpty() {
+        return TicTacToeRules.isEmpty(board);
+    }
+
+    private boolean boardFull() {
+        return TicTacToeRules.isFull(board);
+    }
+
+    private void sendOutcome(int winner) {
+        if (winner == NONE) return;
+        ChatServer.ratings.recordWin(name(winner), name(winner == playerX ? playerO : playerX));
+        if (winner == playerX) {
+            ChatServer.sendPrivate(playerX, "[GAME_OVER] WIN");
+            if (playerO != NONE) ChatServer.sendPrivate(playerO, "[GAME_OVER] LOSE");
+        } else if (winner == playerO) {
+            ChatServer.sendPrivate(playerO, "[GAME_OVER] WIN");
+            if (playerX != NONE) ChatServer.sendPrivate(playerX, "[GAME_OVER] LOSE");
+        }
+    }
+
+    private void sendDraw() {
+        ChatServer.ratings.recordDraw(name(playerX), name(playerO));
+        if (playerX != NONE) ChatServer.sendPrivate(playerX, "[GAME_OVER] DRAW");
+        if (playerO != NONE) ChatServer.sendPrivate(playerO, "[GAME_OVER] DRAW");
+    }
+
+    // Send board state to everyone
+    public synchronized void sendBoardUpdate() {
+        ChatServer.broadcast(encodeBoard());
+    }
+
+    // Register a spectator and queue the cached snapshot + clock on its shard.
+    // Done under the game lock so no move delta can be published in between.
+    public synchronized void addSpectator(ClientHandler spectator) {
+        ChatServer.spectatorFanout.add(spectator);
+        ChatServer.spectatorFanout.sendTo(spectator, encodeBoard());
+        ChatServer.spectatorFanout.sendTo(spectator, clock != null ? clock.syncMessage() : "[CLOCK] OFF");
+    }
+
+    private String encodeBoard() {
+        if (boardSnapshot == null) {
+            StringBuilder sb = new StringBuilder("[GAMEBOARD] ");
+            for (int r = 0; r < 3; r++) {
+                for (int c = 0; c < 3; c++) {
+                    sb.append(r).append(",")
+                            .append(c).append(",")
+                            .append(board[r][c]).append(";");
+                }
+            }
+            boardSnapshot = sb.toString();
+        }
+        return boardSnapshot;
+    }
+
+    // Retry system: both players must press retry
+    public synchronized void handleRetry(int sessionId) {
+        if (!isPlayer(sessionId)) {
+            ChatServer.sendPrivate(sessionId, "[ERROR] Only Tic-Tac-Toe players can retry.");
+            return;
+        }
+
+        if (!gameOver) {
+            ChatServer.sendPrivate(sessionId, "[ERROR] Game is not over yet.");
+            return;
+        }
+
+        retryCount++;
+        ChatServer.broadcast("[RETRY_STATUS] " + retryCount);
+
+        if (retryCount >= 2) {
+            // Both players agreed to retry
+            resetBoard();
+            sendBoardUpdate();
+            sendClockUpdate();
+        }
+    }
+}
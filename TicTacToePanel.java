@@ -1,5 +1,9 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiConsumer;
@@ -23,16 +27,52 @@ public class TicTacToePanel extends JLayeredPane {
     private BiConsumer<Integer, Integer> onMove;
     private Runnable onRetry;
 
-    // Animated background
-    private Timer bgTimer;
-    private float hueOffset = 0f;
+    // Static background (gradient + stars + grid), rendered once per size
+    private BufferedImage background;
 
     // Simple starfield
     private final List<Point> stars = new ArrayList<>();
 
-    // Confetti
-    private List<Confetto> confetti = new ArrayList<>();
-    private Timer confettiTimer;
+    // Animations stop while the panel is hidden or its window is minimized
+    private boolean paused = false;
+    private boolean iconified = false;
+    private Window window;
+    private final WindowAdapter iconListener = new WindowAdapter() {
+        @Override
+        public void windowIconified(WindowEvent e) {
+            iconified = true;
+            updatePaused();
+        }
+
+        @Override
+        public void windowDeiconified(WindowEvent e) {
+            iconified = false;
+            updatePaused();
+        }
+    };
+
+    // Effects (confetti + tile glows), all advanced by one effects clock
+    private static final int CONFETTI_COUNT = 160;
+    private static final Color OVERLAY_DIM = new Color(2, 2, 12, 210);
+    private final ParticleSystem confetti = new ParticleSystem(CONFETTI_COUNT, confettiPalette());
+    private final FrameScheduler.Animation effects = this::tickEffects;
+    private boolean effectsRunning = false;
+
+    // Game clock (server-authoritative; counted down locally between syncs)
+    private JLabel clockLabel;
+    private FrameScheduler.Task clockTick;   // fires when the displayed second changes
+    private long clockX, clockO;        // millis left at last sync
+    private char clockRunning = '-';
+    private long clockSyncedAt;         // System.nanoTime() of last sync
+
+    // Bottom line: spectator analysis, or the caption of a replay
+    private JLabel footerLabel;
+
+    // Replay playback (see playReplay); replayDone != null while one runs
+    private static final long REPLAY_MIN_STEP = 300, REPLAY_MAX_STEP = 1500, REPLAY_HOLD = 2500;
+    private FrameScheduler.Task replayTick;
+    private Runnable replayDone;
+    private boolean overlayBeforeReplay;
 
     public TicTacToePanel(BiConsumer<Integer, Integer> onMove, Runnable onRetry) {
         this.onMove = onMove;
@@ -45,13 +85,10 @@ public class TicTacToePanel extends JLayeredPane {
         // --- Generate simple starfield once ---
         generateStars();
 
-        // --- Animated background timer (slow drift) ---
-        bgTimer = new Timer(40, e -> {
-            hueOffset += 0.0015f;
-            if (hueOffset > 1f) hueOffset -= 1f;
-            repaint();
+        // --- Pause animations when hidden ---
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) updatePaused();
         });
-        bgTimer.start();
 
         // --- BOARD PANEL (transparent, sits on top of gradient) ---
         boardPanel = new JPanel(new GridLayout(3, 3)) {
@@ -77,9 +114,9 @@ public class TicTacToePanel extends JLayeredPane {
                 int col = c;
 
                 btn.addActionListener(e -> {
-                    if (btn.getText().isEmpty() && onMove != null) {
+                    if (btn.getText().isEmpty() && onMove != null && replayDone == null) {
                         onMove.accept(row, col);
-                        btn.triggerGlow();
+                        triggerGlow(btn);
                         SoundManager.play("sounds/click.wav");
                     }
                 });
@@ -107,6 +144,22 @@ public class TicTacToePanel extends JLayeredPane {
 
         add(boardPanel, DEFAULT_LAYER);
 
+        // --- CLOCK LABEL (hidden until the server sends a clock) ---
+        clockLabel = new JLabel(" ", SwingConstants.CENTER);
+        clockLabel.setFont(new Font("Serif", Font.BOLD, 16));
+        clockLabel.setForeground(new Color(220, 230, 255));
+        clockLabel.setBounds(0, 0, WIDTH, 24);
+        clockLabel.setVisible(false);
+        add(clockLabel, PALETTE_LAYER);
+
+        // --- FOOTER LABEL (analysis / replay caption; hidden until needed) ---
+        footerLabel = new JLabel(" ", SwingConstants.CENTER);
+        footerLabel.setFont(new Font("Serif", Font.ITALIC, 14));
+        footerLabel.setForeground(new Color(200, 210, 240));
+        footerLabel.setBounds(0, HEIGHT - 24, WIDTH, 24);
+        footerLabel.setVisible(false);
+        add(footerLabel, PALETTE_LAYER);
+
         // --- OVERLAY PANEL (dark, confetti, result, retry) ---
         overlayPanel = new JPanel() {
             @Override
@@ -114,13 +167,10 @@ public class TicTacToePanel extends JLayeredPane {
                 super.paintComponent(g);
                 Graphics2D g2 = (Graphics2D) g;
 
-                g2.setColor(new Color(2, 2, 12, 210));
+                g2.setColor(OVERLAY_DIM);
                 g2.fillRect(0, 0, getWidth(), getHeight());
 
-                for (Confetto cf : confetti) {
-                    g2.setColor(cf.color);
-                    g2.fillOval((int) cf.x, (int) cf.y, (int) cf.size, (int) cf.size);
-                }
+                confetti.paint(g2);
             }
         };
 
@@ -168,15 +218,30 @@ public class TicTacToePanel extends JLayeredPane {
     }
 
     // --------- BACKGROUND: celestial gradient + stars ---------
+    // Nothing in the background animates, so it is drawn into a cached image
+    // once per size and every repaint is a single blit.
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
 
-        Graphics2D g2 = (Graphics2D) g.create();
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
         int w = getWidth();
         int h = getHeight();
+        if (w <= 0 || h <= 0) return;
+
+        if (background == null || background.getWidth() != w || background.getHeight() != h) {
+            background = renderBackground(w, h);
+        }
+        g.drawImage(background, 0, 0, null);
+    }
+
+    private BufferedImage renderBackground(int w, int h) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        BufferedImage img = gc != null
+                ? gc.createCompatibleImage(w, h, Transparency.OPAQUE)
+                : new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D g2 = img.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
         // Deep space gradient: navy → violet
         Color c1 = new Color(6, 6, 18);
@@ -203,6 +268,38 @@ public class TicTacToePanel extends JLayeredPane {
         }
 
         g2.dispose();
+        return img;
+    }
+
+    // --------- PAUSE WHEN HIDDEN / MINIMIZED ---------
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        window = SwingUtilities.getWindowAncestor(this);
+        if (window != null) window.addWindowListener(iconListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        if (window != null) window.removeWindowListener(iconListener);
+        window = null;
+        super.removeNotify();
+    }
+
+    private void updatePaused() {
+        boolean shouldPause = iconified || !isShowing();
+        if (shouldPause == paused) return;
+        paused = shouldPause;
+
+        if (paused) {
+            if (clockTick != null) clockTick.cancel();
+            FrameScheduler.get().unregister(effects);
+            effectsRunning = false;
+        } else {
+            renderClock();
+            scheduleClockTick();
+            startEffects();
+        }
     }
 
     private void generateStars() {
@@ -235,6 +332,20 @@ public class TicTacToePanel extends JLayeredPane {
         }
     }
 
+    // Our own predicted move, drawn faded until the server confirms it
+    public void showTentative(int r, int c, char val) {
+        if (r < 0 || r > 2 || c < 0 || c > 2) return;
+
+        GamerGirlTileButton btn = buttons[r][c];
+        if (val == 'X') {
+            btn.setText("⭐");
+            btn.setForeground(new Color(255, 240, 170, 120));
+        } else if (val == 'O') {
+            btn.setText("🌙");
+            btn.setForeground(new Color(170, 200, 255, 120));
+        }
+    }
+
     public void resetBoard() {
         for (int r = 0; r < 3; r++) {
             for (int c = 0; c < 3; c++) {
@@ -242,6 +353,7 @@ public class TicTacToePanel extends JLayeredPane {
                 buttons[r][c].setHover(false);
             }
         }
+        footerLabel.setVisible(false);
     }
 
     // --------- GAME OVER OVERLAY ---------
@@ -285,53 +397,188 @@ public class TicTacToePanel extends JLayeredPane {
         repaint();
     }
 
-    // --------- CONFETTI ---------
-    private void startConfetti() {
-        confetti.clear();
-        int num = 90;
-
-        for (int i = 0; i < num; i++) {
-            Confetto c = new Confetto();
-            c.x = (float) (Math.random() * WIDTH);
-            c.y = (float) (Math.random() * -HEIGHT);
-            c.dy = 2f + (float) (Math.random() * 3f);
-            c.size = 4f + (float) (Math.random() * 6f);
-
-            // Star-like confetti (pale blue/white)
-            c.color = new Color(
-                    210 + (int) (Math.random() * 40),
-                    220 + (int) (Math.random() * 35),
-                    255
-            );
-
-            confetti.add(c);
+    // --------- GAME CLOCK ---------
+    public void updateClock(long xMillis, long oMillis, char running) {
+        clockX = xMillis;
+        clockO = oMillis;
+        clockRunning = running;
+        clockSyncedAt = System.nanoTime();
+
+        clockLabel.setVisible(true);
+        renderClock();
+        scheduleClockTick();
+    }
+
+    public void hideClock() {
+        if (clockTick != null) clockTick.cancel();
+        clockRunning = '-';
+        clockLabel.setVisible(false);
+    }
+
+    // --------- ANALYSIS (spectators) ---------
+    // outcome X/O/D with perfect play, plies until then, best = '*' per best cell
+    public void showAnalysis(char outcome, int plies, char[] best) {
+        if (replayDone != null) return;
+
+        StringBuilder text = new StringBuilder("🔭 ");
+        if (plies == 0) text.append("Game over");
+        else if (outcome == 'D') text.append("Draw with best play");
+        else text.append(outcome == 'X' ? "⭐" : "🌙").append(" wins in ").append(plies);
+
+        String sep = " · best ";
+        for (int i = 0; i < 9; i++) {
+            if (best[i] != '*') continue;
+            text.append(sep).append(i / 3 + 1).append(',').append(i % 3 + 1);
+            sep = " ";
         }
+        footerLabel.setText(text.toString());
+        footerLabel.setVisible(true);
+    }
 
-        if (confettiTimer != null && confettiTimer.isRunning()) {
-            confettiTimer.stop();
+    // --------- REPLAY ---------
+    // Play a recorded game (cells r*3+c, X first), pacing moves by the recorded
+    // think time clamped to REPLAY_MIN/MAX_STEP. Clicks are ignored meanwhile.
+    // onDone runs when it ends or is stopped, so the caller can restore the board.
+    public void playReplay(String title, int[] cells, int[] delayMillis, String result, Runnable onDone) {
+        stopReplay();
+        overlayBeforeReplay = overlayPanel.isVisible();
+        if (overlayBeforeReplay) {
+            overlayPanel.setVisible(false);
+            stopConfetti();
         }
+        resetBoard();
 
-        confettiTimer = new Timer(40, e -> {
-            for (Confetto cf : confetti) {
-                cf.y += cf.dy;
-                if (cf.y > HEIGHT) {
-                    cf.y = -cf.size;
-                    cf.x = (float) (Math.random() * WIDTH);
-                }
-            }
-            overlayPanel.repaint();
-        });
-        confettiTimer.start();
+        replayDone = onDone;
+        footerLabel.setText("▶ " + title);
+        footerLabel.setVisible(true);
+        scheduleReplayStep(title, cells, delayMillis, result, 0);
+    }
+
+    private void scheduleReplayStep(String title, int[] cells, int[] delayMillis, String result, int step) {
+        if (step == cells.length) {
+            footerLabel.setText("▶ " + title + " · " + result);
+            replayTick = FrameScheduler.get().schedule(this::stopReplay, REPLAY_HOLD);
+            return;
+        }
+
+        long wait = Math.max(REPLAY_MIN_STEP, Math.min(REPLAY_MAX_STEP, delayMillis[step]));
+        replayTick = FrameScheduler.get().schedule(() -> {
+            int cell = cells[step];
+            updateCell(cell / 3, cell % 3, step % 2 == 0 ? 'X' : 'O');
+            triggerGlow(buttons[cell / 3][cell % 3]);
+            SoundManager.play("sounds/click.wav");
+            footerLabel.setText("▶ " + title + " · move " + (step + 1) + "/" + cells.length);
+            scheduleReplayStep(title, cells, delayMillis, result, step + 1);
+        }, wait);
+    }
+
+    public void stopReplay() {
+        if (replayDone == null) return;
+        if (replayTick != null) replayTick.cancel();
+        replayTick = null;
+
+        Runnable done = replayDone;
+        replayDone = null;
+        footerLabel.setVisible(false);
+        if (overlayBeforeReplay) overlayPanel.setVisible(true);
+        done.run();
+        repaint();
+    }
+
+    public boolean isReplaying() {
+        return replayDone != null;
+    }
+
+    // Wake exactly when the running side's displayed second changes (~1 Hz)
+    private void scheduleClockTick() {
+        if (clockTick != null) clockTick.cancel();
+        clockTick = null;
+        if (paused || (clockRunning != 'X' && clockRunning != 'O')) return;
+
+        long elapsed = (System.nanoTime() - clockSyncedAt) / 1_000_000;
+        long left = (clockRunning == 'X' ? clockX : clockO) - elapsed;
+        if (left <= 0) return;
+
+        clockTick = FrameScheduler.get().schedule(() -> {
+            renderClock();
+            scheduleClockTick();
+        }, (left - 1) % 1000 + 1);
+    }
+
+    private void renderClock() {
+        long elapsed = (System.nanoTime() - clockSyncedAt) / 1_000_000;
+        long x = clockRunning == 'X' ? clockX - elapsed : clockX;
+        long o = clockRunning == 'O' ? clockO - elapsed : clockO;
+
+        String text = (clockRunning == 'X' ? "▸ " : "") + "⭐ " + formatClock(x)
+                + "     "
+                + (clockRunning == 'O' ? "▸ " : "") + "🌙 " + formatClock(o);
+        if (!text.equals(clockLabel.getText())) {
+            clockLabel.setText(text);
+        }
+    }
+
+    private static String formatClock(long millis) {
+        long secs = Math.max(0, (millis + 999) / 1000);   // round up like a chess clock
+        return (secs / 60) + ":" + String.format("%02d", secs % 60);
+    }
+
+    // --------- EFFECTS (confetti + glows) ---------
+    private void startConfetti() {
+        confetti.spawnConfetti(Math.max(1, getWidth()), Math.max(1, getHeight()));
+        startEffects();
     }
 
     private void stopConfetti() {
-        if (confettiTimer != null) confettiTimer.stop();
         confetti.clear();
     }
 
-    private static class Confetto {
-        float x, y, dy, size;
-        Color color;
+    private void triggerGlow(GamerGirlTileButton btn) {
+        btn.glow = 1f;
+        btn.repaint();
+        startEffects();
+    }
+
+    private void startEffects() {
+        if (paused || effectsRunning) return;
+        effectsRunning = true;
+        FrameScheduler.get().register(effects);
+    }
+
+    // One tick for every effect on the shared frame clock; returning false
+    // unregisters it once nothing is animating
+    private boolean tickEffects(long now, float dt) {
+        FrameScheduler frames = FrameScheduler.get();
+        boolean active = false;
+
+        if (confetti.isActive() && overlayPanel.isVisible()) {
+            confetti.step(dt, overlayPanel.getWidth(), overlayPanel.getHeight());
+            Rectangle d = confetti.getDirtyRegion();
+            if (!d.isEmpty()) frames.requestRepaint(overlayPanel, d.x, d.y, d.width, d.height);
+            active = true;
+        }
+
+        for (GamerGirlTileButton[] row : buttons) {
+            for (GamerGirlTileButton btn : row) {
+                if (btn.glow > 0f) {
+                    btn.glow = Math.max(0f, btn.glow - dt / GLOW_SECONDS);
+                    frames.requestRepaint(btn);
+                    active = true;
+                }
+            }
+        }
+
+        effectsRunning = active;
+        return active;
+    }
+
+    // Star-like confetti (pale blue/white), one color per draw bucket
+    private static Color[] confettiPalette() {
+        Color[] palette = new Color[8];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = new Color(210 + i * 5, 220 + i * 4, 255);
+        }
+        return palette;
     }
 
     @Override
@@ -345,14 +592,30 @@ public class TicTacToePanel extends JLayeredPane {
         if (overlayPanel != null) {
             overlayPanel.setBounds(0, 0, w, h);
         }
+        if (clockLabel != null) {
+            clockLabel.setBounds(0, 0, w, 24);
+        }
+        if (footerLabel != null) {
+            footerLabel.setBounds(0, h - 24, w, 24);
+        }
     }
 
 
     // --------- CUSTOM TILE BUTTON CLASS ---------
+    private static final float GLOW_SECONDS = 0.18f;
+
+    // Precomputed halo alphas so fading allocates nothing per frame
+    private static final Color[] GLOW_HALO = new Color[16];
+    static {
+        for (int i = 0; i < GLOW_HALO.length; i++) {
+            GLOW_HALO[i] = new Color(190, 210, 255, 150 * i / (GLOW_HALO.length - 1));
+        }
+    }
+
     private static class GamerGirlTileButton extends JButton {
 
         private Color baseColor;
-        private boolean glowing = false;
+        private float glow = 0f;        // 1 → 0, advanced by the panel's effects clock
         private boolean hover = false;
 
         public GamerGirlTileButton(Color baseColor) {
@@ -364,18 +627,6 @@ public class TicTacToePanel extends JLayeredPane {
             setForeground(new Color(230, 235, 255));
         }
 
-        public void triggerGlow() {
-            glowing = true;
-            repaint();
-
-            Timer t = new Timer(180, e -> {
-                glowing = false;
-                repaint();
-            });
-            t.setRepeats(false);
-            t.start();
-        }
-
         public void setHover(boolean hover) {
             this.hover = hover;
             repaint();
@@ -390,9 +641,10 @@ public class TicTacToePanel extends JLayeredPane {
             int h = getHeight();
             int arc = 26;
 
-            // Glow halo
-            if (glowing || hover) {
-                g2.setColor(new Color(190, 210, 255, 150));
+            // Glow halo (hover = full, click glow fades out)
+            float level = hover ? 1f : glow;
+            if (level > 0f) {
+                g2.setColor(GLOW_HALO[Math.round(level * (GLOW_HALO.length - 1))]);
                 g2.fillRoundRect(2, 2, w - 4, h - 4, arc + 10, arc + 10);
             }
 
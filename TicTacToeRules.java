@@ -0,0 +1,62 @@
+// ===============================================
+//        TIC TAC TOE RULES (shared)
+// ===============================================
+// Pure rule checks on a 3x3 board (' ' = empty). Used by the server's
+// TicTacToeGame and by the client to predict its own moves, so both sides
+// agree on what a legal move is.
+public final class TicTacToeRules {
+
+    private TicTacToeRules() {}
+
+    public static boolean checkWin(char[][] board, char p) {
+        for (int i = 0; i < 3; i++) {
+            if (board[i][0] == p && board[i][1] == p && board[i][2] == p) return true;
+            if (board[0][i] == p && board[1][i] == p && board[2][i] == p) return true;
+        }
+
+        if (board[0][0] == p && board[1][1] == p && board[2][2] == p) return true;
+        if (board[0][2] == p && board[1][1] == p && board[2][0] == p) return true;
+
+        return false;
+    }
+
+    public static boolean isFull(char[][] board) {
+        for (int r = 0; r < 3; r++)
+            for (int c = 0; c < 3; c++)
+                if (board[r][c] == ' ')
+                    return false;
+        return true;
+    }
+
+    public static boolean isEmpty(char[][] board) {
+        for (int r = 0; r < 3; r++)
+            for (int c = 0; c < 3; c++)
+                if (board[r][c] != ' ')
+                    return false;
+        return true;
+    }
+
+    // X always starts, so it's X's turn whenever both have placed the same number of marks
+    public static char sideToMove(char[][] board) {
+        int x = 0, o = 0;
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 3; c++) {
+                if (board[r][c] == 'X') x++;
+                else if (board[r][c] == 'O') o++;
+            }
+        }
+        return x == o ? 'X' : 'O';
+    }
+
+    public static boolean isGameOver(char[][] board) {
+        return checkWin(board, 'X') || checkWin(board, 'O') || isFull(board);
+    }
+
+    // Would `symbol` playing (r, c) be legal on this board?
+    public static boolean isLegalMove(char[][] board, char symbol, int r, int c) {
+        if (r < 0 || r > 2 || c < 0 || c > 2) return false;
+        if (board[r][c] != ' ') return false;
+        if (isGameOver(board)) return false;
+        return sideToMove(board) == symbol;
+    }
+}
@@ -0,0 +1,131 @@
+import java.util.Arrays;
+
+// ===============================================
+//        TIC TAC TOE SOLVER (perfect play)
+// ===============================================
+// Every position reachable from the empty board (5478 of them) is solved
+// once at class load by negamax over base-3 board codes; afterwards any
+// query is a table read. Win/draw checks go through TicTacToeRules, so the
+// solver and the server can never disagree about how a game ends.
+//
+// Scores are from the side to move: 10 - plies for a forced win (faster is
+// better), -(10 - plies) for a forced loss, 0 for a draw.
+public final class TicTacToeSolver {
+
+    public static final int X_WINS = 1;
+    public static final int DRAW = 0;
+    public static final int O_WINS = -1;
+
+    private static final int POSITIONS = 19683;   // 3^9
+    private static final int[] POW3 = { 1, 3, 9, 27, 81, 243, 729, 2187, 6561 };
+    private static final byte UNSOLVED = Byte.MIN_VALUE;
+    private static final byte[] SCORE = new byte[POSITIONS];
+
+    static {
+        Arrays.fill(SCORE, UNSOLVED);
+        solve(0);
+    }
+
+    private TicTacToeSolver() {}
+
+    // Base-3 code: cell r*3+c contributes 0 (empty), 1 (X) or 2 (O) times 3^(r*3+c)
+    public static int encode(char[][] board) {
+        int code = 0;
+        for (int i = 0; i < 9; i++) {
+            char ch = board[i / 3][i % 3];
+            if (ch == 'X') code += POW3[i];
+            else if (ch == 'O') code += 2 * POW3[i];
+        }
+        return code;
+    }
+
+    // Result with perfect play from here: X_WINS, DRAW or O_WINS
+    public static int outcome(char[][] board) {
+        int s = score(encode(board));
+        if (s == 0) return DRAW;
+        boolean moverWins = s > 0;
+        return (TicTacToeRules.sideToMove(board) == 'X') == moverWins ? X_WINS : O_WINS;
+    }
+
+    // Plies left until the game ends with perfect play (0 if already over)
+    public static int pliesToEnd(char[][] board) {
+        int s = score(encode(board));
+        if (s != 0) return 10 - Math.abs(s);
+        int empty = 0;
+        for (char[] row : board)
+            for (char ch : row)
+                if (ch == ' ') empty++;
+        return TicTacToeRules.isGameOver(board) ? 0 : empty;   // draws always fill the board
+    }
+
+    // Optimal cells (r*3+c) for the side to move: fastest win, else draw,
+    // else slowest loss. Empty if the game is over.
+    public static int[] bestMoves(char[][] board) {
+        int code = encode(board);
+        score(code);   // rejects unreachable boards
+        if (TicTacToeRules.isGameOver(board)) return new int[0];
+
+        int mark = TicTacToeRules.sideToMove(board) == 'X' ? 1 : 2;
+        int[] best = new int[9];
+        int n = 0;
+        int bestScore = Integer.MIN_VALUE;
+        for (int i = 0; i < 9; i++) {
+            if (board[i / 3][i % 3] != ' ') continue;
+            int s = fromChild(SCORE[code + mark * POW3[i]]);
+            if (s > bestScore) {
+                bestScore = s;
+                n = 0;
+            }
+            if (s == bestScore) best[n++] = i;
+        }
+        return Arrays.copyOf(best, n);
+    }
+
+    private static int score(int code) {
+        byte s = SCORE[code];
+        if (s == UNSOLVED) throw new IllegalArgumentException("position not reachable in a legal game");
+        return s;
+    }
+
+    // -------------------- NEGAMAX (class init only) --------------------
+
+    private static int solve(int code) {
+        if (SCORE[code] != UNSOLVED) return SCORE[code];
+
+        char[][] board = decode(code);
+        char mover = TicTacToeRules.sideToMove(board);
+        char previous = mover == 'X' ? 'O' : 'X';
+
+        int best;
+        if (TicTacToeRules.checkWin(board, previous)) {
+            best = -10;
+        } else if (TicTacToeRules.isFull(board)) {
+            best = 0;
+        } else {
+            int mark = mover == 'X' ? 1 : 2;
+            best = Integer.MIN_VALUE;
+            for (int i = 0; i < 9; i++) {
+                if (board[i / 3][i % 3] == ' ') {
+                    best = Math.max(best, fromChild(solve(code + mark * POW3[i])));
+                }
+            }
+        }
+        SCORE[code] = (byte) best;
+        return best;
+    }
+
+    // Child score is from the opponent's side and one ply deeper
+    private static int fromChild(int child) {
+        int s = -child;
+        return s > 0 ? s - 1 : s < 0 ? s + 1 : 0;
+    }
+
+    private static char[][] decode(int code) {
+        char[][] board = new char[3][3];
+        for (int i = 0; i < 9; i++) {
+            int d = code / POW3[i] % 3;
+            board[i / 3][i % 3] = d == 0 ? ' ' : d == 1 ? 'X' : 'O';
+        }
+        return board;
+    }
+}
@@ -0,0 +1,476 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Headless self-play tournament. Bots play each other in-process on every
+// core, with no sockets. The default engine is the server's own
+// TicTacToeGame, so this both benchmarks the engine and checks it: each
+// move is validated by TicTacToeRules and must also be accepted by the game.
+// After each game both seats retry, exactly as clients do.
+//
+//   javac -encoding UTF-8 -d bin *.java
+//   java -cp bin -Dtournament.players=random,greedy,search2,perfect Tournament
+//   java -cp bin -Dtournament.format=swiss -Dtournament.players=random,random,greedy,search1,search3,perfect Tournament
+//
+// Strategies:
+//   random     uniform over legal moves
+//   greedy     win if possible, else block, else centre, else random
+//   search<d>  negamax to depth d with an open-lines heuristic (search2)
+//   perfect    random choice among TicTacToeSolver's optimal moves
+//
+// Each match is split evenly between colours. The report gives games/s,
+// moves/s, a W/D/L matrix, and each score with a 95% confidence interval.
+//
+// Settings (system properties):
+//   tournament.players   entrants, comma-separated (random,greedy,search2,perfect)
+//   tournament.format    roundrobin | swiss (roundrobin)
+//   tournament.games     games per match (10000)
+//   tournament.rounds    swiss rounds (ceil(log2 entrants) + 1)
+//   tournament.engine    server = TicTacToeGame + rules, rules = rules only (server)
+//   tournament.threads   worker threads (CPU count)
+//   tournament.seed      base random seed (time-based)
+public class Tournament {
+
+    private static final String[] PLAYERS = System.getProperty("tournament.players", "random,greedy,search2,perfect").split(",");
+    private static final String FORMAT = System.getProperty("tournament.format", "roundrobin");
+    private static final int GAMES = Integer.getInteger("tournament.games", 10_000);
+    private static final boolean SERVER_ENGINE = !System.getProperty("tournament.engine", "server").equals("rules");
+    private static final int THREADS = Integer.getInteger("tournament.threads", Runtime.getRuntime().availableProcessors());
+    private static final long SEED = Long.getLong("tournament.seed", System.nanoTime());
+
+    private static final int CHUNK = 1_000;   // games per task, so big matches spread over all threads
+
+    // Seats for the in-process server game; no sessions exist, so its sends go nowhere
+    private static final int X_SEAT = 0, O_SEAT = 1;
+
+    private static final ThreadLocal<TicTacToeGame> GAMES_PER_THREAD = ThreadLocal.withInitial(() -> {
+        TicTacToeGame g = new TicTacToeGame();
+        g.assignPlayer(X_SEAT);
+        g.assignPlayer(O_SEAT);
+        return g;
+    });
+
+    private final Entrant[] entrants;
+    private final ExecutorService pool;
+
+    // results[a][b]: a's record against b (a as either colour)
+    private final long[][] wins, draws, played;
+    private long totalMoves;
+
+    public static void main(String[] args) throws Exception {
+        // The in-process server game logs seat changes at INFO; keep the report readable
+        if (System.getProperty("log.level") == null) System.setProperty("log.level", "WARN");
+
+        Entrant[] entrants = new Entrant[PLAYERS.length];
+        for (int i = 0; i < PLAYERS.length; i++) {
+            entrants[i] = new Entrant(label(PLAYERS, i), strategy(PLAYERS[i].trim()));
+        }
+        if (entrants.length < 2) throw new IllegalArgumentException("need at least two entrants");
+
+        System.out.println("[TOURNAMENT] " + FORMAT + ", " + entrants.length + " entrants, " + GAMES
+                + " games/match, engine=" + (SERVER_ENGINE ? "server" : "rules")
+                + ", threads=" + THREADS + ", seed=" + SEED);
+
+        Tournament t = new Tournament(entrants);
+        long start = System.nanoTime();
+        if (FORMAT.equals("swiss")) t.swiss();
+        else t.roundRobin();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        t.pool.shutdown();
+
+        t.report(seconds);
+    }
+
+    private Tournament(Entrant[] entrants) {
+        this.entrants = entrants;
+        int n = entrants.length;
+        wins = new long[n][n];
+        draws = new long[n][n];
+        played = new long[n][n];
+        pool = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread t = new Thread(r, "tournament");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // "random,random,greedy" → random#1, random#2, greedy
+    private static String label(String[] names, int i) {
+        String name = names[i].trim();
+        int same = 0, index = 0;
+        for (int j = 0; j < names.length; j++) {
+            if (names[j].trim().equals(name)) {
+                same++;
+                if (j <= i) index++;
+            }
+        }
+        return same > 1 ? name + "#" + index : name;
+    }
+
+    // -------------------- BRACKETS --------------------
+
+    private void roundRobin() throws Exception {
+        List<int[]> matches = new ArrayList<>();
+        for (int a = 0; a < entrants.length; a++)
+            for (int b = a + 1; b < entrants.length; b++)
+                matches.add(new int[] { a, b });
+        playAll(matches, 0);
+    }
+
+    // Pair by match points (1 for a won match, ½ for a drawn one), avoiding
+    // rematches where possible; with an odd field the lowest unpaired gets a bye
+    private void swiss() throws Exception {
+        int n = entrants.length;
+        int rounds = Integer.getInteger("tournament.rounds",
+                (int) Math.ceil(Math.log(n) / Math.log(2)) + 1);
+        boolean[][] met = new boolean[n][n];
+
+        for (int round = 1; round <= rounds; round++) {
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> {
+                int c = Double.compare(entrants[b].matchPoints, entrants[a].matchPoints);
+                return c != 0 ? c : Double.compare(gameScore(b), gameScore(a));
+            });
+
+            boolean[] paired = new boolean[n];
+            List<int[]> matches = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                int a = order[i];
+                if (paired[a]) continue;
+                int opponent = -1;
+                for (int j = i + 1; j < n && opponent < 0; j++) {
+                    if (!paired[order[j]] && !met[a][order[j]]) opponent = order[j];
+                }
+                for (int j = i + 1; j < n && opponent < 0; j++) {
+                    if (!paired[order[j]]) opponent = order[j];   // everyone left has met: allow a rematch
+                }
+                paired[a] = true;
+                if (opponent < 0) {
+                    entrants[a].matchPoints += 1;
+                    System.out.println("[TOURNAMENT] round " + round + ": " + entrants[a].name + " bye");
+                    continue;
+                }
+                paired[opponent] = true;
+                met[a][opponent] = met[opponent][a] = true;
+                matches.add(new int[] { a, opponent });
+            }
+            playAll(matches, round);
+        }
+    }
+
+    // Runs every match of one round in parallel, then scores the matches
+    private void playAll(List<int[]> matches, int round) throws Exception {
+        List<Future<Chunk>> futures = new ArrayList<>();
+        long taskSeed = SEED + round * 1_000_003L;
+        for (int[] m : matches) {
+            for (int first = 0; first < GAMES; first += CHUNK) {
+                Chunk chunk = new Chunk(m[0], m[1], first, Math.min(GAMES, first + CHUNK), taskSeed++);
+                futures.add(pool.submit(chunk::play, chunk));
+            }
+        }
+        for (Future<Chunk> f : futures) {
+            Chunk c = f.get();
+            wins[c.a][c.b] += c.aWins;
+            wins[c.b][c.a] += c.bWins;
+            draws[c.a][c.b] += c.draws;
+            draws[c.b][c.a] += c.draws;
+            played[c.a][c.b] += c.games;
+            played[c.b][c.a] += c.games;
+            totalMoves += c.moves;
+        }
+
+        if (round == 0) return;
+        for (int[] m : matches) {
+            int a = m[0], b = m[1];
+            double score = (wins[a][b] + draws[a][b] / 2.0) / played[a][b];
+            System.out.printf("[TOURNAMENT] round %d: %s vs %s  %.3f%n", round, entrants[a].name, entrants[b].name, score);
+            if (score > 0.5) entrants[a].matchPoints += 1;
+            else if (score < 0.5) entrants[b].matchPoints += 1;
+            else { entrants[a].matchPoints += 0.5; entrants[b].matchPoints += 0.5; }
+        }
+    }
+
+    // -------------------- ONE BATCH OF GAMES --------------------
+
+    // Games [from, to) of one match; even-numbered games have `a` as X
+    private final class Chunk {
+        final int a, b, from, to;
+        final long seed;
+        long aWins, bWins, draws, games, moves;
+
+        Chunk(int a, int b, int from, int to, long seed) {
+            this.a = a;
+            this.b = b;
+            this.from = from;
+            this.to = to;
+            this.seed = seed;
+        }
+
+        void play() {
+            SplittableRandom rnd = new SplittableRandom(seed);
+            char[][] board = new char[3][3];
+            TicTacToeGame game = SERVER_ENGINE ? GAMES_PER_THREAD.get() : null;
+
+            for (int g = from; g < to; g++) {
+                boolean aIsX = (g & 1) == 0;
+                Entrant x = entrants[aIsX ? a : b];
+                Entrant o = entrants[aIsX ? b : a];
+                char winner = playGame(board, x, o, game, rnd);
+
+                games++;
+                if (winner == ' ') draws++;
+                else if ((winner == 'X') == aIsX) aWins++;
+                else bWins++;
+            }
+        }
+
+        // Returns 'X', 'O' or ' ' for a draw
+        private char playGame(char[][] board, Entrant x, Entrant o, TicTacToeGame game, SplittableRandom rnd) {
+            for (char[] row : board) Arrays.fill(row, ' ');
+
+            while (true) {
+                char side = TicTacToeRules.sideToMove(board);
+                Entrant mover = side == 'X' ? x : o;
+                int cell = mover.strategy.move(board, side, rnd);
+                int r = cell / 3, c = cell % 3;
+
+                if (!TicTacToeRules.isLegalMove(board, side, r, c)) {
+                    throw new IllegalStateException(mover.name + " played an illegal move " + r + "," + c);
+                }
+                if (game != null && !game.makeMove(side == 'X' ? X_SEAT : O_SEAT, r, c)) {
+                    throw new IllegalStateException("TicTacToeGame rejected a legal move " + r + "," + c);
+                }
+                board[r][c] = side;
+                moves++;
+
+                char result = TicTacToeRules.checkWin(board, side) ? side
+                        : TicTacToeRules.isFull(board) ? ' ' : 0;
+                if (result == 0) continue;
+
+                if (game != null) {
+                    game.handleRetry(X_SEAT);
+                    game.handleRetry(O_SEAT);
+                }
+                return result;
+            }
+        }
+    }
+
+    // -------------------- REPORT --------------------
+
+    private double gameScore(int a) {
+        long w = 0, d = 0, n = 0;
+        for (int b = 0; b < entrants.length; b++) {
+            w += wins[a][b];
+            d += draws[a][b];
+            n += played[a][b];
+        }
+        return n == 0 ? 0 : (w + d / 2.0) / n;
+    }
+
+    // Mean per-game score (1 / ½ / 0) with a 95% normal-approximation interval
+    private static String scoreWithInterval(long w, long d, long n) {
+        if (n == 0) return "-";
+        double mean = (w + d / 2.0) / n;
+        double meanSq = (w + d / 4.0) / n;
+        double half = 1.96 * Math.sqrt(Math.max(0, meanSq - mean * mean) / n);
+        return String.format("%.3f+/-%.3f", mean, half);
+    }
+
+    private void report(double seconds) {
+        long games = 0;
+        for (int a = 0; a < entrants.length; a++)
+            for (int b = a + 1; b < entrants.length; b++)
+                games += played[a][b];
+
+        System.out.println("[TOURNAMENT] ----------------------------------------------------------");
+        System.out.printf("[TOURNAMENT] %d games, %d moves in %.2fs: %.0f games/s, %.0f moves/s%n",
+                games, totalMoves, seconds, games / seconds, totalMoves / seconds);
+
+        int w = 12;
+        for (Entrant e : entrants) w = Math.max(w, e.name.length() + 1);
+
+        StringBuilder header = new StringBuilder(String.format("%-" + w + "s", "W/D/L"));
+        for (Entrant e : entrants) header.append(String.format("%22s", e.name));
+        System.out.println("[TOURNAMENT] " + header);
+        for (int a = 0; a < entrants.length; a++) {
+            StringBuilder row = new StringBuilder(String.format("%-" + w + "s", entrants[a].name));
+            for (int b = 0; b < entrants.length; b++) {
+                long n = played[a][b];
+                row.append(String.format("%22s", a == b || n == 0 ? "-"
+                        : wins[a][b] + "/" + draws[a][b] + "/" + (n - wins[a][b] - draws[a][b])));
+            }
+            System.out.println("[TOURNAMENT] " + row);
+        }
+
+        StringBuilder header2 = new StringBuilder(String.format("%-" + w + "s", "score"));
+        for (Entrant e : entrants) header2.append(String.format("%22s", e.name));
+        System.out.println("[TOURNAMENT] " + header2);
+        for (int a = 0; a < entrants.length; a++) {
+            StringBuilder row = new StringBuilder(String.format("%-" + w + "s", entrants[a].name));
+            for (int b = 0; b < entrants.length; b++) {
+                row.append(String.format("%22s", a == b ? "-" : scoreWithInterval(wins[a][b], draws[a][b], played[a][b])));
+            }
+            System.out.println("[TOURNAMENT] " + row);
+        }
+
+        Integer[] order = new Integer[entrants.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        boolean swiss = FORMAT.equals("swiss");
+        Arrays.sort(order, (a, b) -> {
+            int c = swiss ? Double.compare(entrants[b].matchPoints, entrants[a].matchPoints) : 0;
+            return c != 0 ? c : Double.compare(gameScore(b), gameScore(a));
+        });
+        System.out.println("[TOURNAMENT] standings:");
+        for (int place = 0; place < order.length; place++) {
+            int a = order[place];
+            long tw = 0, td = 0, tn = 0;
+            for (int b = 0; b < entrants.length; b++) {
+                tw += wins[a][b];
+                td += draws[a][b];
+                tn += played[a][b];
+            }
+            System.out.println("[TOURNAMENT] " + (place + 1) + ". " + entrants[a].name
+                    + (swiss ? "  match points " + entrants[a].matchPoints : "")
+                    + "  score " + scoreWithInterval(tw, td, tn));
+        }
+    }
+
+    // -------------------- STRATEGIES --------------------
+
+    private static final class Entrant {
+        final String name;
+        final Strategy strategy;
+        double matchPoints;   // swiss only
+
+        Entrant(String name, Strategy strategy) {
+            this.name = name;
+            this.strategy = strategy;
+        }
+    }
+
+    // Picks a cell (r*3+c) for `me`; must leave the board as it found it
+    interface Strategy {
+        int move(char[][] board, char me, SplittableRandom rnd);
+    }
+
+    private static Strategy strategy(String spec) {
+        switch (spec) {
+            case "random":  return Tournament::randomMove;
+            case "greedy":  return Tournament::greedyMove;
+            case "perfect": return (board, me, rnd) -> {
+                int[] best = TicTacToeSolver.bestMoves(board);
+                return best[rnd.nextInt(best.length)];
+            };
+            default:
+                if (spec.startsWith("search")) {
+                    int depth = spec.length() > 6 ? Integer.parseInt(spec.substring(6)) : 2;
+                    return new Search(depth);
+                }
+                throw new IllegalArgumentException("unknown strategy: " + spec);
+        }
+    }
+
+    private static int randomMove(char[][] board, char me, SplittableRandom rnd) {
+        int[] free = new int[9];
+        int n = 0;
+        for (int i = 0; i < 9; i++) {
+            if (board[i / 3][i % 3] == ' ') free[n++] = i;
+        }
+        return free[rnd.nextInt(n)];
+    }
+
+    private static int greedyMove(char[][] board, char me, SplittableRandom rnd) {
+        char them = me == 'X' ? 'O' : 'X';
+        int win = completing(board, me);
+        if (win >= 0) return win;
+        int block = completing(board, them);
+        if (block >= 0) return block;
+        if (board[1][1] == ' ') return 4;
+        return randomMove(board, me, rnd);
+    }
+
+    // A cell that wins on the spot for `p`, or -1
+    private static int completing(char[][] board, char p) {
+        for (int i = 0; i < 9; i++) {
+            int r = i / 3, c = i % 3;
+            if (board[r][c] != ' ') continue;
+            board[r][c] = p;
+            boolean wins = TicTacToeRules.checkWin(board, p);
+            board[r][c] = ' ';
+            if (wins) return i;
+        }
+        return -1;
+    }
+
+    // Depth-limited negamax; leaves are scored by lines still open for each side
+    private static final class Search implements Strategy {
+        private static final int WIN = 1_000;
+        private static final int[][] LINES = {
+                {0, 1, 2}, {3, 4, 5}, {6, 7, 8}, {0, 3, 6}, {1, 4, 7}, {2, 5, 8}, {0, 4, 8}, {2, 4, 6} };
+        private final int depth;
+
+        Search(int depth) {
+            this.depth = Math.max(1, depth);
+        }
+
+        @Override
+        public int move(char[][] board, char me, SplittableRandom rnd) {
+            int[] best = new int[9];
+            int n = 0;
+            int bestScore = Integer.MIN_VALUE;
+            for (int i = 0; i < 9; i++) {
+                int r = i / 3, c = i % 3;
+                if (board[r][c] != ' ') continue;
+                board[r][c] = me;
+                int s = -negamax(board, other(me), depth - 1, 1);
+                board[r][c] = ' ';
+                if (s > bestScore) {
+                    bestScore = s;
+                    n = 0;
+                }
+                if (s == bestScore) best[n++] = i;
+            }
+            return best[rnd.nextInt(n)];
+        }
+
+        // Score for `side` to move; wins found sooner score higher
+        private int negamax(char[][] board, char side, int left, int ply) {
+            if (TicTacToeRules.checkWin(board, other(side))) return -(WIN - ply);
+            if (TicTacToeRules.isFull(board)) return 0;
+            if (left == 0) return openLines(board, side) - openLines(board, other(side));
+
+            int best = Integer.MIN_VALUE;
+            for (int i = 0; i < 9; i++) {
+                int r = i / 3, c = i % 3;
+                if (board[r][c] != ' ') continue;
+                board[r][c] = side;
+                best = Math.max(best, -negamax(board, other(side), left - 1, ply + 1));
+                board[r][c] = ' ';
+            }
+            return best;
+        }
+
+        private static int openLines(char[][] board, char p) {
+            char them = other(p);
+            int open = 0;
+            for (int[] line : LINES) {
+                boolean blocked = false;
+                for (int cell : line) {
+                    if (board[cell / 3][cell % 3] == them) blocked = true;
+                }
+                if (!blocked) open++;
+            }
+            return open;
+        }
+
+        private static char other(char p) {
+            return p == 'X' ? 'O' : 'X';
+        }
+    }
+}
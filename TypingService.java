@@ -0,0 +1,94 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// ===============================================
+//        TYPING INDICATORS (TTL + rate limit)
+// ===============================================
+// Tracks who is typing in the room. A /typing line only refreshes that
+// user's TTL; the room's aggregated state is published at most once per
+// PUBLISH_INTERVAL, and only when the set of typers actually changed:
+//
+//   [TYPING] alice,bob      (empty list = nobody is typing)
+//
+// Entries that aren't refreshed expire after TTL, which publishes the
+// "stopped typing" state. All timing runs on the shared server timer.
+class TypingService {
+
+    private static final long TTL_MILLIS = Long.getLong("typing.ttl.ms", 3000);
+    private static final long PUBLISH_INTERVAL_MILLIS = Long.getLong("typing.publish.ms", 500);
+
+    private final Map<String, Long> expiresAt = new LinkedHashMap<>();   // name → nanoTime deadline
+    private boolean dirty = false;
+    private long lastPublishAt = System.nanoTime() - PUBLISH_INTERVAL_MILLIS * 1_000_000;
+    private boolean tickQueued = false;
+    private long nextTickAt;                                              // nanoTime of queued tick
+
+    public synchronized void typing(String username) {
+        long now = System.nanoTime();
+        if (expiresAt.put(username, now + TTL_MILLIS * 1_000_000) == null) {
+            dirty = true;
+        }
+        scheduleTick(now);
+    }
+
+    public synchronized void stopped(String username) {
+        if (expiresAt.remove(username) != null) {
+            dirty = true;
+            scheduleTick(System.nanoTime());
+        }
+    }
+
+    // Timer thread: update state under the lock, publish after releasing it
+    private void tick() {
+        String update = null;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tickQueued = false;
+
+            // Drop expired typers
+            Iterator<Long> it = expiresAt.values().iterator();
+            while (it.hasNext()) {
+                if (it.next() - now <= 0) {
+                    it.remove();
+                    dirty = true;
+                }
+            }
+
+            if (dirty && now - lastPublishAt >= PUBLISH_INTERVAL_MILLIS * 1_000_000) {
+                dirty = false;
+                lastPublishAt = now;
+                update = "[TYPING] " + String.join(",", expiresAt.keySet());
+            }
+
+            scheduleTick(now);
+        }
+        if (update != null) ChatServer.broadcast(update);
+    }
+
+    // Queue the next tick for whichever comes first: the next allowed publish
+    // (if there is something to publish) or the earliest TTL expiry
+    private void scheduleTick(long now) {
+        boolean needed = false;
+        long due = 0;
+        if (dirty) {
+            long allowedAt = lastPublishAt + PUBLISH_INTERVAL_MILLIS * 1_000_000;
+            due = allowedAt - now > 0 ? allowedAt : now;
+            needed = true;
+        }
+        for (long deadline : expiresAt.values()) {
+            if (!needed || deadline - due < 0) {
+                due = deadline;
+                needed = true;
+            }
+        }
+
+        if (!needed || (tickQueued && nextTickAt - due <= 0)) {
+            return;   // nothing to do, or an earlier tick is already queued
+        }
+
+        tickQueued = true;
+        nextTickAt = due;
+        ServerScheduler.schedule(this::tick, Math.max(0, (due - now) / 1_000_000));
+    }
+}
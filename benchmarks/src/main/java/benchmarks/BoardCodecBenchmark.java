@@ -0,0 +1,64 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+
+// Both ends of the [GAMEBOARD] line: the server building it (cold, and from
+// the per-board cache that sendBoardUpdate normally hits) and the client
+// parsing it back into cells.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardCodecBenchmark {
+
+    // Seat session IDs; nothing is registered under them, so sends go nowhere
+    private static final int X = 0, O = 1;
+
+    private static final MethodHandle NEW_GAME = Internals.constructor("TicTacToeGame");
+    private static final MethodHandle ASSIGN = Internals.virtual("TicTacToeGame", "assignPlayer", void.class, int.class);
+    private static final MethodHandle MAKE_MOVE = Internals.virtual("TicTacToeGame", "makeMove",
+            boolean.class, int.class, int.class, int.class, long.class);
+    private static final MethodHandle ENCODE = Internals.virtual("TicTacToeGame", "encodeBoard", String.class);
+    private static final MethodHandle SEND_BOARD = Internals.virtual("TicTacToeGame", "sendBoardUpdate", void.class);
+    private static final VarHandle SNAPSHOT = Internals.field("TicTacToeGame", "boardSnapshot", String.class);
+    private static final MethodHandle DECODE = Internals.statik("ChatConnection", "decodeBoard", char[].class, String.class);
+
+    private Object game;
+    private String line;
+
+    @Setup
+    public void setup() throws Throwable {
+        game = NEW_GAME.invoke();
+        ASSIGN.invoke(game, X);
+        ASSIGN.invoke(game, O);
+        MAKE_MOVE.invoke(game, X, 1, 1, -1L);
+        MAKE_MOVE.invoke(game, O, 0, 0, -1L);
+        MAKE_MOVE.invoke(game, X, 2, 0, -1L);
+        line = (String) ENCODE.invoke(game);
+    }
+
+    // Full rebuild, as after every move
+    @Benchmark
+    public String encodeCold() throws Throwable {
+        SNAPSHOT.set(game, (String) null);
+        return (String) ENCODE.invoke(game);
+    }
+
+    // sendBoardUpdate with nobody connected: cached encode + broadcast bookkeeping
+    @Benchmark
+    public void sendBoardUpdate() throws Throwable {
+        SEND_BOARD.invoke(game);
+    }
+
+    // Client side (ChatConnection, formerly ChatClient.updateGameBoard)
+    @Benchmark
+    public char[] decode() throws Throwable {
+        return (char[]) DECODE.invoke(line);
+    }
+}
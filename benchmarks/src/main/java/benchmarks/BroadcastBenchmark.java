@@ -0,0 +1,65 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// ChatServer.broadcast to N connected clients (two players, the rest
+// spectators on the sharded writers). Each operation waits until every
+// client's send() has completed, so this is the full fan-out time rather
+// than just the cost of queueing it.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BroadcastBenchmark {
+
+    private static final MethodHandle BROADCAST = Internals.statik("ChatServer", "broadcast", void.class, String.class);
+
+    @Param({"2", "16", "128", "1024"})
+    public int clients;
+
+    private final LongAdder delivered = new LongAdder();
+    private Object[] handlers;
+    private long expected;
+
+    @Setup
+    public void setup() throws Throwable {
+        handlers = new Object[clients];
+        for (int i = 0; i < clients; i++) {
+            handlers[i] = Internals.fakeClient("c" + i, new Internals.CountingSink(delivered));
+            Internals.ADD_CLIENT.invoke("c" + i, handlers[i]);
+        }
+        awaitQuiet();
+    }
+
+    @TearDown
+    public void tearDown() throws Throwable {
+        for (Object handler : handlers) {
+            Internals.REMOVE_CLIENT.invoke(handler);
+        }
+    }
+
+    @Benchmark
+    public void broadcast() throws Throwable {
+        expected += clients;
+        BROADCAST.invoke("bench: hello everyone");
+        while (delivered.sum() < expected) {
+            Thread.onSpinWait();
+        }
+    }
+
+    // Let the join/presence traffic from setup drain, then start counting from there
+    private void awaitQuiet() throws InterruptedException {
+        long last = -1;
+        while (delivered.sum() != last) {
+            last = delivered.sum();
+            Thread.sleep(200);
+        }
+        expected = last;
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+// ClientHandler command dispatch for one line of each kind, including flood
+// control. The handler is registered as the only player and writes into a
+// null sink. Rate limits are lifted so the limiter is measured, not tripped.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Dratelimit.chat=1000000000/1000", "-Dratelimit.pm=1000000000/1000",
+        "-Dratelimit.move=1000000000/1000", "-Dratelimit.typing=1000000000/1000",
+        "-Dratelimit.control=1000000000/1000", "-Dratelimit.connection=1000000000/1000" })
+@State(Scope.Thread)
+public class DispatchBenchmark {
+
+    private static final MethodHandle DISPATCH = Internals.virtual("ClientHandler", "dispatch", boolean.class, String.class);
+
+    @Param({"chat", "typing", "users", "pm", "move", "retry"})
+    public String command;
+
+    private Object handler;
+    private String line;
+
+    @Setup
+    public void setup() throws Throwable {
+        handler = Internals.fakeClient("bench", OutputStream.nullOutputStream());
+        Internals.ADD_CLIENT.invoke("bench", handler);
+
+        switch (command) {
+            case "chat":   line = "hello everyone, good game"; break;
+            case "typing": line = "/typing bench"; break;
+            case "users":  line = "/users"; break;
+            case "pm":     line = "/pm bench hi"; break;
+            case "move":   line = "/move 2 2 17"; break;   // rejected: no opponent yet
+            default:       line = "/ttt retry"; break;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Throwable {
+        Internals.REMOVE_CLIENT.invoke(handler);
+    }
+
+    @Benchmark
+    public boolean dispatch() throws Throwable {
+        return (boolean) DISPATCH.invoke(handler, line);
+    }
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+// Server game logic: TicTacToeGame.makeMove for a whole game, and the win
+// check on its own. No clients are connected, so sends are lookups that
+// find nobody; this isolates the game's own cost.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+
+    // Seat session IDs; nothing is registered under them, so sends go nowhere
+    private static final int X = 0, O = 1;
+
+    private static final MethodHandle NEW_GAME = Internals.constructor("TicTacToeGame");
+    private static final MethodHandle ASSIGN = Internals.virtual("TicTacToeGame", "assignPlayer", void.class, int.class);
+    private static final MethodHandle MAKE_MOVE = Internals.virtual("TicTacToeGame", "makeMove",
+            boolean.class, int.class, int.class, int.class, long.class);
+    private static final MethodHandle RETRY = Internals.virtual("TicTacToeGame", "handleRetry", void.class, int.class);
+    private static final MethodHandle CHECK_WIN = Internals.statik("TicTacToeRules", "checkWin",
+            boolean.class, char[][].class, char.class);
+
+    private Object game;
+
+    @Setup
+    public void setup() throws Throwable {
+        game = NEW_GAME.invoke();
+        ASSIGN.invoke(game, X);
+        ASSIGN.invoke(game, O);
+    }
+
+    // Board shapes for the win check
+    @State(Scope.Thread)
+    public static class Boards {
+        @Param({"empty", "midgame", "diagonal", "full"})
+        public String board;
+
+        char[][] cells;
+
+        @Setup
+        public void setup() {
+            switch (board) {
+                case "empty":    cells = rows("   ", "   ", "   "); break;
+                case "midgame":  cells = rows("XO ", " X ", "O  "); break;
+                case "diagonal": cells = rows("XO ", "OX ", "  X"); break;
+                default:         cells = rows("XOX", "XOO", "OXX"); break;
+            }
+        }
+
+        private static char[][] rows(String a, String b, String c) {
+            return new char[][] { a.toCharArray(), b.toCharArray(), c.toCharArray() };
+        }
+    }
+
+    // X wins along the top row in five moves, then both players retry
+    @Benchmark
+    public boolean fullGame() throws Throwable {
+        boolean ok = (boolean) MAKE_MOVE.invoke(game, X, 0, 0, -1L);
+        ok &= (boolean) MAKE_MOVE.invoke(game, O, 1, 0, -1L);
+        ok &= (boolean) MAKE_MOVE.invoke(game, X, 0, 1, -1L);
+        ok &= (boolean) MAKE_MOVE.invoke(game, O, 1, 1, -1L);
+        ok &= (boolean) MAKE_MOVE.invoke(game, X, 0, 2, -1L);
+        RETRY.invoke(game, X);
+        RETRY.invoke(game, O);
+        return ok;
+    }
+
+    @Benchmark
+    public boolean checkWin(Boards b) throws Throwable {
+        return (boolean) CHECK_WIN.invoke(b.cells, 'X');
+    }
+}
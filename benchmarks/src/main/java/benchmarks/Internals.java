@@ -0,0 +1,93 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+
+// The application lives in the default package, which a named package can't
+// import. Benchmarks reach it through method/var handles resolved once into
+// static finals, so the JIT can inline them like direct calls.
+final class Internals {
+
+    private Internals() {}
+
+    static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("missing class " + name, e);
+        }
+    }
+
+    private static MethodHandles.Lookup lookup(Class<?> owner) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+    }
+
+    static MethodHandle constructor(String owner, Class<?>... params) {
+        try {
+            Class<?> c = type(owner);
+            return lookup(c).findConstructor(c, MethodType.methodType(void.class, params));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(owner + " constructor", e);
+        }
+    }
+
+    static MethodHandle virtual(String owner, String name, Class<?> ret, Class<?>... params) {
+        try {
+            Class<?> c = type(owner);
+            return lookup(c).findVirtual(c, name, MethodType.methodType(ret, params));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(owner + "." + name, e);
+        }
+    }
+
+    static MethodHandle statik(String owner, String name, Class<?> ret, Class<?>... params) {
+        try {
+            Class<?> c = type(owner);
+            return lookup(c).findStatic(c, name, MethodType.methodType(ret, params));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(owner + "." + name, e);
+        }
+    }
+
+    static VarHandle field(String owner, String name, Class<?> fieldType) {
+        try {
+            Class<?> c = type(owner);
+            return lookup(c).findVarHandle(c, name, fieldType);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(owner + "." + name, e);
+        }
+    }
+
+    // -------------------- FAKE CLIENTS --------------------
+
+    private static final MethodHandle NEW_HANDLER = constructor("ClientHandler", java.net.Socket.class);
+    private static final MethodHandle ATTACH_OUTPUT = virtual("ClientHandler", "attachOutput", void.class, OutputStream.class);
+    private static final VarHandle HANDLER_USERNAME = field("ClientHandler", "username", String.class);
+    static final MethodHandle ADD_CLIENT = statik("ChatServer", "addClient", void.class, String.class, type("ClientHandler"));
+    static final MethodHandle REMOVE_CLIENT = statik("ChatServer", "removeClient", void.class, type("ClientHandler"));
+
+    // A ClientHandler with no socket behind it, writing into the given sink.
+    // Not registered yet; pass it to ADD_CLIENT.
+    static Object fakeClient(String username, OutputStream sink) throws Throwable {
+        Object handler = NEW_HANDLER.invoke(new java.net.Socket());
+        ATTACH_OUTPUT.invoke(handler, sink);
+        HANDLER_USERNAME.set(handler, username);
+        return handler;
+    }
+
+    // Discards bytes; counts one delivery per line (the outbox writes each queued line in one call)
+    static final class CountingSink extends OutputStream {
+        private final LongAdder delivered;
+
+        CountingSink(LongAdder delivered) {
+            this.delivered = delivered;
+        }
+
+        @Override public void write(int b) {}
+        @Override public void write(byte[] b, int off, int len) { delivered.increment(); }
+    }
+}
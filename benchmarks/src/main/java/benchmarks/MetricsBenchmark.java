@@ -0,0 +1,56 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+// Cost of the always-on server metrics: one message counter bump and one
+// histogram record, single-threaded and with handler threads contending.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    private static final MethodHandle NEW_METRICS = Internals.constructor("ServerMetrics");
+    private static final MethodHandle COUNT_MESSAGE = Internals.virtual("ServerMetrics", "message",
+            void.class, Internals.type("RateLimiter$MessageClass"));
+    private static final MethodHandle NEW_HISTOGRAM = Internals.constructor("LatencyHistogram");
+    private static final MethodHandle RECORD = Internals.virtual("LatencyHistogram", "record", void.class, long.class);
+
+    private Object metrics;
+    private Object chat;
+    private Object histogram;
+
+    @Setup
+    public void setup() throws Throwable {
+        metrics = NEW_METRICS.invoke();
+        chat = Internals.type("RateLimiter$MessageClass").getEnumConstants()[0];
+        histogram = NEW_HISTOGRAM.invoke();
+    }
+
+    @Benchmark
+    public void countMessage() throws Throwable {
+        COUNT_MESSAGE.invoke(metrics, chat);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void countMessageContended() throws Throwable {
+        COUNT_MESSAGE.invoke(metrics, chat);
+    }
+
+    @Benchmark
+    public void recordLatency() throws Throwable {
+        RECORD.invoke(histogram, 12_345L);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordLatencyContended() throws Throwable {
+        RECORD.invoke(histogram, 12_345L);
+    }
+}
@@ -0,0 +1,167 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplayReaderTest {
+
+    @TempDir
+    File dir;
+
+    // One archived game, as the server hands it to encode()
+    private static final class Game {
+        final int result;
+        final boolean timeout;
+        final long startedAt;
+        final int x, o;
+        final byte[] cells;
+        final int[] delays;
+
+        Game(int result, boolean timeout, long startedAt, int x, int o, int[] cells, int[] delays) {
+            this.result = result;
+            this.timeout = timeout;
+            this.startedAt = startedAt;
+            this.x = x;
+            this.o = o;
+            this.cells = new byte[cells.length];
+            for (int i = 0; i < cells.length; i++) this.cells[i] = (byte) cells[i];
+            this.delays = delays;
+        }
+    }
+
+    private static final Game[] GAMES = {
+            new Game(ReplayReader.RESULT_X, false, 1_700_000_000_000L, 0, 1,
+                    new int[] { 0, 3, 1, 4, 2 }, new int[] { 1200, 300, 800, 400, 100 }),
+            new Game(ReplayReader.RESULT_O, true, 1_700_000_060_000L, 300, 70_000,
+                    new int[] { 4, 0, 8 }, new int[] { 0, 2500, 99_900 }),
+            new Game(ReplayReader.RESULT_DRAW, false, 1_700_000_120_000L, 2, 127,
+                    new int[] { 4, 0, 2, 6, 3, 5, 1, 7, 8 }, new int[] { 100, 200, 300, 400, 500, 600, 700, 800, 900 }),
+            new Game(ReplayReader.RESULT_X, true, 1_700_000_180_000L, 128, 5,
+                    new int[0], new int[0]),
+    };
+
+    // Header + records, the way ReplayRecorder writes a file
+    private File archive(long firstGameId, Game... games) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(ByteBuffer.allocate(ReplayReader.HEADER)
+                .putInt(ReplayReader.MAGIC).putInt(ReplayReader.VERSION).putLong(firstGameId).array());
+        byte[] scratch = new byte[ReplayReader.MAX_RECORD];
+        for (Game g : games) {
+            int len = ReplayReader.encode(scratch, g.result, g.timeout, g.startedAt, g.x, g.o,
+                    g.cells, g.delays, g.cells.length);
+            out.write(scratch, 0, len);
+        }
+        File f = new File(dir, ReplayReader.archiveName(firstGameId));
+        Files.write(f.toPath(), out.toByteArray());
+        return f;
+    }
+
+    private static void assertGame(Game g, long gameId, ReplayReader r) {
+        assertEquals(gameId, r.gameId());
+        assertEquals(g.result, r.result());
+        assertEquals(g.timeout, r.timedOut());
+        assertEquals(g.startedAt, r.startedAtMillis());
+        assertEquals(g.x, r.playerX());
+        assertEquals(g.o, r.playerO());
+        assertEquals(g.cells.length, r.moves());
+        for (int i = 0; i < r.moves(); i++) {
+            assertEquals(g.cells[i], r.cell(i));
+            assertEquals(g.delays[i], r.delayMillis(i));
+        }
+    }
+
+    @Test
+    void roundTripsEveryField() throws IOException {
+        File f = archive(42, GAMES);
+        try (ReplayReader r = ReplayReader.open(f)) {
+            assertEquals(42, r.firstGameId());
+            for (int i = 0; i < GAMES.length; i++) {
+                assertTrue(r.next());
+                assertGame(GAMES[i], 42 + i, r);
+            }
+            assertFalse(r.next());
+            assertEquals(f.length(), r.endOffset());
+        }
+    }
+
+    @Test
+    void delaysAreStoredInTenthsOfASecond() throws IOException {
+        Game g = new Game(ReplayReader.RESULT_X, false, 1_700_000_000_000L, 0, 1,
+                new int[] { 0, 3 }, new int[] { 1234, 49 });
+        try (ReplayReader r = ReplayReader.open(archive(0, g))) {
+            assertTrue(r.next());
+            assertEquals(1200, r.delayMillis(0));
+            assertEquals(0, r.delayMillis(1));
+        }
+    }
+
+    @Test
+    void seekResumesAtARecordBoundary() throws IOException {
+        File f = archive(10, GAMES);
+        long third;
+        try (ReplayReader r = ReplayReader.open(f)) {
+            r.next();
+            r.next();
+            third = r.endOffset();
+        }
+        try (ReplayReader r = ReplayReader.open(f)) {
+            r.seek(third, 12);
+            assertTrue(r.next());
+            assertGame(GAMES[2], 12, r);
+        }
+    }
+
+    @Test
+    void tornLastRecordReadsAsEndOfFile() throws IOException {
+        File f = archive(0, GAMES);
+        long lastStart;
+        try (ReplayReader r = ReplayReader.open(f)) {
+            for (int i = 0; i < GAMES.length - 1; i++) r.next();
+            lastStart = r.endOffset();
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.setLength(f.length() - 2);
+        }
+
+        try (ReplayReader r = ReplayReader.open(f)) {
+            for (int i = 0; i < GAMES.length - 1; i++) {
+                assertTrue(r.next());
+                assertGame(GAMES[i], i, r);
+            }
+            assertFalse(r.next());
+            assertEquals(lastStart, r.endOffset());   // where the recorder cuts the file
+        }
+    }
+
+    @Test
+    void rejectsFilesThatAreNotArchives() throws IOException {
+        File f = new File(dir, "games-000000000000.ttr");
+        Files.write(f.toPath(), "not a replay archive".getBytes());
+        assertThrows(IOException.class, () -> ReplayReader.open(f));
+    }
+
+    @Test
+    void listsArchivesOldestFirst() throws IOException {
+        archive(1000);
+        archive(0);
+        archive(64);
+        Files.write(new File(dir, "players.dat").toPath(), new byte[1]);
+
+        File[] files = ReplayReader.archives(dir);
+        String[] names = new String[files.length];
+        for (int i = 0; i < files.length; i++) names[i] = files[i].getName();
+        assertArrayEquals(new String[] {
+                ReplayReader.archiveName(0), ReplayReader.archiveName(64), ReplayReader.archiveName(1000) }, names);
+    }
+}
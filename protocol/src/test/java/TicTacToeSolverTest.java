@@ -0,0 +1,78 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class TicTacToeSolverTest {
+
+    // "XO.|.X.|..O" → board; '.' is an empty cell
+    private static char[][] board(String rows) {
+        String[] r = rows.split("\\|");
+        char[][] b = new char[3][3];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                char ch = r[i].charAt(j);
+                b[i][j] = ch == '.' ? ' ' : ch;
+            }
+        }
+        return b;
+    }
+
+    @Test
+    void emptyBoardIsADraw() {
+        char[][] b = board("...|...|...");
+        assertEquals(TicTacToeSolver.DRAW, TicTacToeSolver.outcome(b));
+        assertEquals(9, TicTacToeSolver.pliesToEnd(b));
+        assertEquals(9, TicTacToeSolver.bestMoves(b).length);   // every first move draws
+    }
+
+    @Test
+    void takesAnImmediateWinOverABlock() {
+        char[][] b = board("XX.|OO.|...");
+        assertEquals(TicTacToeSolver.X_WINS, TicTacToeSolver.outcome(b));
+        assertEquals(1, TicTacToeSolver.pliesToEnd(b));
+        assertArrayEquals(new int[] { 2 }, TicTacToeSolver.bestMoves(b));
+    }
+
+    @Test
+    void aForkCannotBeBlocked() {
+        // X threatens the top row and the right column; O can block only one
+        char[][] b = board("X.X|.O.|O.X");
+        assertEquals(TicTacToeSolver.X_WINS, TicTacToeSolver.outcome(b));
+        assertEquals(2, TicTacToeSolver.pliesToEnd(b));   // O blocks, X completes the other line
+    }
+
+    @Test
+    void adjacentEdgeReplyToACornerLoses() {
+        char[][] b = board("XO.|...|...");
+        assertEquals(TicTacToeSolver.X_WINS, TicTacToeSolver.outcome(b));
+        assertEquals(5, TicTacToeSolver.pliesToEnd(b));
+    }
+
+    @Test
+    void oWinsWhenXLeavesALineOpen() {
+        char[][] b = board("X.X|OO.|X..");   // O to move completes the middle row first
+        assertEquals(TicTacToeSolver.O_WINS, TicTacToeSolver.outcome(b));
+        assertEquals(1, TicTacToeSolver.pliesToEnd(b));
+        assertArrayEquals(new int[] { 5 }, TicTacToeSolver.bestMoves(b));
+    }
+
+    @Test
+    void finishedGamesHaveNoPliesLeft() {
+        char[][] won = board("XXX|OO.|...");
+        assertEquals(TicTacToeSolver.X_WINS, TicTacToeSolver.outcome(won));
+        assertEquals(0, TicTacToeSolver.pliesToEnd(won));
+        assertEquals(0, TicTacToeSolver.bestMoves(won).length);
+
+        char[][] drawn = board("XOX|XOO|OXX");
+        assertEquals(TicTacToeSolver.DRAW, TicTacToeSolver.outcome(drawn));
+        assertEquals(0, TicTacToeSolver.pliesToEnd(drawn));
+    }
+
+    @Test
+    void rejectsUnreachablePositions() {
+        assertThrows(IllegalArgumentException.class, () -> TicTacToeSolver.outcome(board("XX.|...|...")));
+        assertThrows(IllegalArgumentException.class, () -> TicTacToeSolver.pliesToEnd(board("OO.|X..|...")));
+    }
+}
@@ -0,0 +1,73 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PlayerRegistryTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void idsSurviveAReload() {
+        File file = new File(dir, "players.dat");
+        PlayerRegistry first = new PlayerRegistry(file, null);
+        String[] names = { "alice", "a\rb", "bob", "zoë", "c|d" };
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(i, first.idOf(names[i]));
+        }
+        assertEquals(1, first.idOf("a\rb"));   // known names keep their ID
+
+        PlayerRegistry reloaded = new PlayerRegistry(file, null);
+        assertEquals(names.length, reloaded.size());
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(i, reloaded.find(names[i]));
+            assertEquals(names[i], reloaded.nameOf(i));
+        }
+        assertEquals(PlayerRegistry.NONE, reloaded.find("mallory"));
+        assertNull(reloaded.nameOf(names.length));
+    }
+
+    @Test
+    void tornLastEntryIsCutOff() throws IOException {
+        File file = new File(dir, "players.dat");
+        PlayerRegistry first = new PlayerRegistry(file, null);
+        first.idOf("alice");
+        first.idOf("bob");
+        long intact = file.length();
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[] { 0, 9, 'c', 'a' });   // length says 9, crash after 2
+        }
+
+        PlayerRegistry reloaded = new PlayerRegistry(file, null);
+        assertEquals(2, reloaded.size());
+        assertEquals(intact, file.length());
+        assertEquals(2, reloaded.idOf("carol"));
+        assertEquals(2, new PlayerRegistry(file, null).find("carol"));
+    }
+
+    @Test
+    void importsTheOldReplayNameTableInOrder() throws IOException {
+        File legacy = new File(dir, "players.txt");
+        Files.write(legacy.toPath(), "bob\nalice\nx\ry\n".getBytes(StandardCharsets.UTF_8));
+
+        File file = new File(dir, "players.dat");
+        PlayerRegistry imported = new PlayerRegistry(file, legacy);
+        assertEquals(0, imported.find("bob"));
+        assertEquals(1, imported.find("alice"));
+        assertEquals(2, imported.find("x\ry"));
+
+        // Imported once; afterwards the registry file is the only source
+        Files.write(legacy.toPath(), "someone\n".getBytes(StandardCharsets.UTF_8));
+        PlayerRegistry reloaded = new PlayerRegistry(file, legacy);
+        assertEquals(3, reloaded.size());
+        assertEquals(PlayerRegistry.NONE, reloaded.find("someone"));
+    }
+}
@@ -0,0 +1,187 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.Socket;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplayRecorderTest {
+
+    private static final int GAMES = 500;
+    private static final String[] NAMES = { "alice", "bob", "carol", "dave", "eve", "mallory", "trent" };
+
+    @TempDir
+    File dir;
+
+    @BeforeAll
+    static void sharedServerState() {
+        // ReplayRecorder announces saved games through ChatServer; load its
+        // statics (default settings, nothing on disk) before pointing ours elsewhere
+        assertNotNull(ChatServer.metrics);
+    }
+
+    @AfterEach
+    void clearSettings() {
+        System.clearProperty("replay.dir");
+        System.clearProperty("replay.fileBytes");
+    }
+
+    private File playersFile() {
+        return new File(dir, "players.dat");
+    }
+
+    private ReplayRecorder recorder(PlayerRegistry players) {
+        System.setProperty("replay.dir", new File(dir, "replays").getPath());
+        System.setProperty("replay.fileBytes", "4096");   // ~180 games per file, so 500 games roll twice
+        return new ReplayRecorder(players);
+    }
+
+    // -------- deterministic game #i --------
+
+    private static String x(int i) { return NAMES[i % NAMES.length]; }
+    private static String o(int i) { return NAMES[(i + 3) % NAMES.length]; }
+    private static int result(int i) { return i % 3; }
+    private static boolean timeout(int i) { return result(i) != ReplayReader.RESULT_DRAW && i % 4 == 0; }
+    private static int moves(int i) { return result(i) == ReplayReader.RESULT_DRAW ? 9 : 5 + i % 3; }
+
+    private static byte[] cells(int i) {
+        byte[] c = new byte[9];
+        for (int k = 0; k < 9; k++) c[k] = (byte) ((k * 4 + i) % 9);   // a permutation of 0..8
+        return c;
+    }
+
+    private static int[] delays(int i) {
+        int[] d = new int[9];
+        for (int k = 0; k < 9; k++) d[k] = 100 * ((i + k) % 50);
+        return d;
+    }
+
+    private static void record(ReplayRecorder r, int i) {
+        r.record(x(i), o(i), result(i), timeout(i), 1_700_000_000_000L + i * 60_000L,
+                cells(i), delays(i), moves(i));
+    }
+
+    private static String expectedLine(int i) {
+        StringBuilder sb = new StringBuilder("REPLAY|").append(i).append('|')
+                .append("XOD".charAt(result(i))).append(timeout(i) ? "T" : "").append('|');
+        byte[] c = cells(i);
+        int[] d = delays(i);
+        for (int k = 0; k < moves(i); k++) sb.append(k > 0 ? "," : "").append(c[k]);
+        sb.append('|');
+        for (int k = 0; k < moves(i); k++) sb.append(k > 0 ? "," : "").append(d[k]);
+        return sb.append('|').append(x(i)).append('|').append(o(i)).toString();
+    }
+
+    // -------- helpers --------
+
+    // A ClientHandler with no socket; everything sent to it lands in `sink`
+    private static final class Asker {
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        final ClientHandler handler = new ClientHandler(new Socket());
+
+        Asker() {
+            handler.attachOutput(sink);
+        }
+
+        String awaitLineContaining(String text) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (System.currentTimeMillis() < deadline) {
+                for (String line : sink.toString().split("\n")) {
+                    if (line.contains(text)) return line;
+                }
+                Thread.sleep(10);
+            }
+            return fail("no line containing \"" + text + "\" in:\n" + sink);
+        }
+    }
+
+    private static void await(LongSupplier value, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (value.getAsLong() != expected && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(expected, value.getAsLong());
+    }
+
+    private void recordAll() throws InterruptedException {
+        ReplayRecorder r = recorder(new PlayerRegistry(playersFile(), null));
+        for (int i = 0; i < GAMES; i++) record(r, i);
+        await(r::gameCount, GAMES);
+    }
+
+    // -------- tests --------
+
+    @Test
+    void gamesSurviveRollingAndReopening() throws Exception {
+        recordAll();
+        File[] files = ReplayReader.archives(new File(dir, "replays"));
+        assertTrue(files.length >= 3, "expected the archive to roll, got " + files.length + " file(s)");
+
+        // Fresh registry and recorder over the same files, as after a restart
+        ReplayRecorder reopened = recorder(new PlayerRegistry(playersFile(), null));
+        await(reopened::gameCount, GAMES);
+
+        Asker asker = new Asker();
+        for (int id : new int[] { 0, 63, 64, 179, 180, 181, 255, 400, GAMES - 1 }) {
+            reopened.sendReplay(asker.handler, id);
+            assertEquals(expectedLine(id), asker.awaitLineContaining("REPLAY|" + id + "|"));
+        }
+
+        reopened.sendReplay(asker.handler, GAMES);
+        asker.awaitLineContaining("[ERROR] No replay #" + GAMES + ".");
+    }
+
+    @Test
+    void playerHistoryIsNewestFirstAcrossFiles() throws Exception {
+        recordAll();
+        ReplayRecorder reopened = recorder(new PlayerRegistry(playersFile(), null));
+        await(reopened::gameCount, GAMES);
+
+        // carol is X in games 2, 9, 16, ... and O in games 6, 13, 20, ...
+        int newest = -1;
+        for (int i = GAMES - 1; i >= 0 && newest < 0; i--) {
+            if (x(i).equals("carol") || o(i).equals("carol")) newest = i;
+        }
+        Asker asker = new Asker();
+        reopened.sendList(asker.handler, "carol");
+        asker.awaitLineContaining("[REPLAYS] Last 10 games of carol");
+        String first = asker.awaitLineContaining("[REPLAYS] #");
+        assertTrue(first.startsWith("[REPLAYS] #" + newest + " "), first);
+    }
+
+    @Test
+    void tornLastRecordIsCutOffAndItsIdReused() throws Exception {
+        recordAll();
+        File[] files = ReplayReader.archives(new File(dir, "replays"));
+        File newest = files[files.length - 1];
+        try (RandomAccessFile raf = new RandomAccessFile(newest, "rw")) {
+            raf.setLength(raf.length() - 3);   // crash in the middle of the last append
+        }
+
+        ReplayRecorder reopened = recorder(new PlayerRegistry(playersFile(), null));
+        await(reopened::gameCount, GAMES - 1);
+
+        record(reopened, GAMES - 1);
+        await(reopened::gameCount, GAMES);
+
+        Asker asker = new Asker();
+        reopened.sendReplay(asker.handler, GAMES - 1);
+        assertEquals(expectedLine(GAMES - 1), asker.awaitLineContaining("REPLAY|" + (GAMES - 1) + "|"));
+        assertEquals(newest.length(), endOfLastRecord(newest));
+    }
+
+    private static long endOfLastRecord(File f) throws IOException {
+        try (ReplayReader r = ReplayReader.open(f)) {
+            while (r.next()) { }
+            return r.endOffset();
+        }
+    }
+}
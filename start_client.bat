@@ -7,7 +7,7 @@ REM Create bin folder if it doesn't exist
 if not exist bin mkdir bin
 
 REM Compile all client files into /bin/
-javac -d bin ChatClient.java LoginWindow.java TicTacToePanel.java SoundManager.java
+javac -d bin ChatClient.java LoginWindow.java TicTacToePanel.java SoundManager.java ChatMessage.java ChatTranscriptModel.java ChatBubbleRenderer.java ClientEvent.java StarfieldBackground.java ParticleSystem.java FrameScheduler.java MovePredictor.java TicTacToeRules.java ChatConnection.java ChatListener.java
 
 REM Run client from /bin/
 cd bin
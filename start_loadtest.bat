@@ -0,0 +1,15 @@
+@echo off
+echo Starting TicTacToe load generator (server must already be running)...
+
+cd "%~dp0"
+
+REM Create bin folder if it doesn't exist
+if not exist bin mkdir bin
+
+REM Compile load generator + client protocol into /bin/
+javac -d bin LoadGenerator.java LatencyHistogram.java ChatConnection.java ChatListener.java TicTacToeRules.java
+
+REM Run from /bin/ (see LoadGenerator.java for -Dload.* settings)
+cd bin
+java LoadGenerator
+pause
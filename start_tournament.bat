@@ -0,0 +1,15 @@
+@echo off
+echo Starting TicTacToe self-play tournament...
+
+cd "%~dp0"
+
+REM Create bin folder if it doesn't exist
+if not exist bin mkdir bin
+
+REM Compile tournament + server game engine into /bin/
+javac -d bin Tournament.java TicTacToeSolver.java TicTacToeRules.java ChatServer.java TicTacToeGame.java
+
+REM Run from /bin/ (see Tournament.java for -Dtournament.* settings)
+cd bin
+java Tournament
+pause